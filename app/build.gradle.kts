@@ -19,6 +19,8 @@ android {
 
     buildFeatures {
         viewBinding = true
+        // EventLog gates logcat output on BuildConfig.DEBUG
+        buildConfig = true
     }
 
     buildTypes {
@@ -0,0 +1,94 @@
+package com.beco.demo;
+
+import android.app.Application;
+
+import com.beco.demo.logging.EventLog;
+import com.beco.demo.logging.LogEvent;
+import com.beco.demo.map.MapSnapshotStore;
+import com.beco.demo.map.MapStateStore;
+import com.beco.demo.routing.HubRouteTable;
+import com.beco.demo.startup.MapConfig;
+import com.beco.demo.startup.MapPreloader;
+import com.beco.demo.startup.StartupGraph;
+import com.beco.demo.startup.StartupTrace;
+
+import java.io.File;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Starts the app's work before the first screen needs it.
+ *
+ * A {@link StartupGraph} reads the configuration, the saved map state, the last map picture and
+ * the hub route table. The stores it fills live as long as the app. The map engine is not started
+ * here, since the process also starts without any screen; the splash screen starts it, see
+ * {@link MapPreloader}.
+ */
+public class BecoApplication extends Application {
+
+    private static final String TAG = "BecoApplication";
+    private static final LogEvent STARTUP_FINISHED = LogEvent.info(TAG, "Startup critical path %s: %d ms of %d ms");
+
+    private static final String HUB_ROUTES_FILE = "hub_routes.bin";
+    private static final String MAP_STATE_FILE = "map_state.bin";
+    private static final String MAP_SNAPSHOT_FILE = "map_snapshot.bin";
+    // Leave a core for the main thread; startup threads go away once idle
+    private static final int MAX_STARTUP_THREADS = 3;
+    private static final long STARTUP_THREAD_KEEP_ALIVE_SECONDS = 5;
+
+    private MapStateStore mapStateStore;
+    private MapSnapshotStore mapSnapshotStore;
+    private volatile HubRouteTable preloadedHubRoutes;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        StartupTrace.start(this);
+        StartupTrace.beginSection(StartupTrace.APPLICATION_CREATE);
+        mapStateStore = new MapStateStore(new File(getFilesDir(), MAP_STATE_FILE));
+        mapSnapshotStore = new MapSnapshotStore(new File(getCacheDir(), MAP_SNAPSHOT_FILE));
+
+        new StartupGraph(createStartupExecutor())
+                .add("config", MapConfig::load)
+                .add("saved-state", mapStateStore::preload)
+                .add("snapshot", mapSnapshotStore::preload)
+                .add("hub-routes", () -> preloadedHubRoutes = HubRouteTable.read(getHubRoutesFile(), null))
+                .setListener(report -> EventLog.log(STARTUP_FINISHED, report.getCriticalPath(),
+                        report.getCriticalPathMillis(), report.getTotalMillis()))
+                .start();
+        StartupTrace.endSection(StartupTrace.APPLICATION_CREATE);
+    }
+
+    public MapStateStore getMapStateStore() {
+        return mapStateStore;
+    }
+
+    public MapSnapshotStore getMapSnapshotStore() {
+        return mapSnapshotStore;
+    }
+
+    public File getHubRoutesFile() {
+        return new File(getFilesDir(), HUB_ROUTES_FILE);
+    }
+
+    /**
+     * @return The hub route table read during startup, or null if it is not read yet or was taken
+     */
+    public HubRouteTable takePreloadedHubRoutes() {
+        HubRouteTable table = preloadedHubRoutes;
+        preloadedHubRoutes = null;
+        return table;
+    }
+
+    private static ThreadPoolExecutor createStartupExecutor() {
+        int threads = Math.max(1, Math.min(MAX_STARTUP_THREADS, Runtime.getRuntime().availableProcessors() - 1));
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+                STARTUP_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                runnable -> new Thread(runnable, "startup-" + count.incrementAndGet()));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
@@ -4,7 +4,9 @@ import android.content.Intent;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.View;
+import android.view.ViewStub;
 import android.widget.FrameLayout;
+import android.widget.ImageView;
 import android.widget.LinearLayout;
 import android.widget.Toast;
 
@@ -22,7 +24,6 @@ import com.becomap.sdk.models.BCCategory;
 import com.becomap.sdk.models.BCInitErrorCode;
 import com.becomap.sdk.models.BCLocation;
 import com.becomap.sdk.models.BCMapFloor;
-import com.becomap.sdk.models.BCMapOptions;
 import com.becomap.sdk.models.BCMapViewOptions;
 import com.becomap.sdk.models.BCRoute;
 import com.becomap.sdk.models.BCRouteErrorCode;
@@ -31,48 +32,165 @@ import com.beco.demo.components.FloorSwitcherComponent;
 import com.beco.demo.components.LocationDetailsCard;
 import com.beco.demo.components.RouteInfoBarComponent;
 import com.beco.demo.components.SearchBarComponent;
-
-import java.util.Arrays;
+import com.beco.demo.components.VisibleLocationsPanel;
+import com.beco.demo.logging.EventLog;
+import com.beco.demo.logging.LogEvent;
+import com.beco.demo.map.CameraController;
+import com.beco.demo.map.MapCommandQueue;
+import com.beco.demo.map.MapSnapshotStore;
+import com.beco.demo.map.MapState;
+import com.beco.demo.map.MapStateStore;
+import com.beco.demo.map.SdkCallbackDispatcher;
+import com.beco.demo.map.ViewChangeDispatcher;
+import com.beco.demo.map.VisibleLocationsTracker;
+import com.beco.demo.routing.BatchRouteService;
+import com.beco.demo.routing.FloorSegment;
+import com.beco.demo.routing.FloorSegmentCalculator;
+import com.beco.demo.routing.HubRoutePrecomputer;
+import com.beco.demo.routing.HubRouteTable;
+import com.beco.demo.routing.ItineraryPlanner;
+import com.beco.demo.routing.RouteAlternatives;
+import com.beco.demo.routing.RouteCache;
+import com.beco.demo.routing.RouteKey;
+import com.beco.demo.routing.RouteMetricsProvider;
+import com.beco.demo.routing.RoutePlaybackController;
+import com.beco.demo.routing.RoutePrefetcher;
+import com.beco.demo.routing.RouteRequestCoordinator;
+import com.beco.demo.routing.RouteReversal;
+import com.beco.demo.routing.RouteSummary;
+import com.beco.demo.routing.WalkingTimeLoader;
+import com.beco.demo.startup.MapConfig;
+import com.beco.demo.startup.MapPreloader;
+import com.beco.demo.startup.StartupTrace;
+
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class MainActivity extends AppCompatActivity {
     // Logging tag
     private static final String TAG = "MainActivity";
 
+    // Events of the camera and route paths, recorded without building strings
+    private static final LogEvent VIEW_CHANGED = LogEvent.verbose(TAG, "View: [%f, %f] zoom=%f, bearing=%f, pitch=%f");
+    private static final LogEvent ROUTE_PREVIEW = LogEvent.debug(TAG, "Route cache hit for %s, reloading geometry");
+    private static final LogEvent ROUTES_RECEIVED = LogEvent.debug(TAG, "Route calculated: %d routes");
+    private static final LogEvent HUB_ROUTE = LogEvent.debug(TAG, "Hub route answered from precomputed table: %s");
+    private static final LogEvent ROUTE_REQUESTED = LogEvent.debug(TAG, "Route request #%d issued for %s");
+    private static final LogEvent ROUTE_REVERSED = LogEvent.debug(TAG, "Showing reversed route while recalculating %s");
+    private static final LogEvent ALTERNATIVE_SELECTED = LogEvent.debug(TAG, "Route alternative selected: %s");
+    private static final LogEvent ROUTE_DISPLAYED = LogEvent.debug(TAG, "Route %d displayed on map");
+    private static final LogEvent SEGMENT_SHOWN = LogEvent.debug(TAG, "Route segment %d shown on %s");
+    private static final LogEvent FLOOR_PICKED = LogEvent.debug(TAG, "Floor selected: %s");
+    private static final LogEvent NAVIGATE_REQUESTED =
+            LogEvent.debug(TAG, "Navigation requested for destination: %s. Launching search for source.");
+    private static final LogEvent ITINERARY_STOPS = LogEvent.debug(TAG, "Itinerary now has %d stops");
+    private static final LogEvent VIEW_LIST_SELECTED = LogEvent.debug(TAG, "Location selected from view list: %s");
+    private static final LogEvent ROUTE_INFO_FLOOR = LogEvent.debug(TAG, "Floor selected from route info: %s");
+    private static final LogEvent FLOOR_SWITCHED = LogEvent.debug(TAG, "Successfully switched to floor: %s");
+    private static final LogEvent SEARCH_SELECTED = LogEvent.debug(TAG, "Location selected from search: %s");
+    private static final LogEvent LOCATION_SELECTED = LogEvent.debug(TAG, "Selected location: %s");
+    private static final LogEvent SEARCH_LAUNCHED =
+            LogEvent.debug(TAG, "Launching search activity with %d locations, %d categories");
+    private static final LogEvent RENDER_COMPLETE = LogEvent.debug(TAG, "Map Render Complete - Current site from mapView: %s");
+    private static final LogEvent FLOORS_FOUND = LogEvent.debug(TAG, "Found %d floors");
+    private static final LogEvent FLOOR_CHANGED = LogEvent.debug(TAG, "Floor Changed to: %s");
+    private static final LogEvent LOCATIONS_SELECTED =
+            LogEvent.debug(TAG, "Locations Selected: %d locations at timestamp %d");
+    private static final LogEvent SELECTED_LOCATION = LogEvent.verbose(TAG, "Location %d: %s");
+    private static final LogEvent PRIMARY_SELECTED = LogEvent.debug(TAG, "Primary selected location: %s");
+    private static final LogEvent DATA_CACHED = LogEvent.debug(TAG, "Categories cached: %d, locations cached: %d");
+    private static final LogEvent AMENITY_TYPES = LogEvent.debug(TAG, "Available amenity types: %s");
+    private static final LogEvent ITINERARY_OPTIMIZING = LogEvent.debug(TAG, "Optimizing itinerary of %d stops from '%s'");
+    private static final LogEvent ITINERARY_ORDERED = LogEvent.debug(TAG, "Itinerary order: %d stops ending at %s");
+    private static final LogEvent ROUTE_RESTORED = LogEvent.debug(TAG, "Restoring route to %s");
+    private static final LogEvent SELECTION_RESTORED = LogEvent.debug(TAG, "Restoring selection %s");
+    private static final LogEvent MAP_COMMANDS = LogEvent.debug(TAG, "Map commands: %d issued, %d engine calls saved");
+
     // Configuration constants
-    private static final String CLIENT_ID = "client-id";
-    private static final String CLIENT_SECRET = "client-secret";
-    private static final String SITE_IDENTIFIER = "site-identifier";
+    private static final String STATE_MAP = "map_state";
+    private static final long SNAPSHOT_FADE_MILLIS = 300;
 
     // Views
     private FrameLayout contentContainer;
     private BCMapView mapView;
+    private boolean mapPreloaded;
     private LinearLayout loadingOverlay;
+    private ImageView mapSnapshotView;
 
     // Components
     private SearchBarComponent searchBarComponent;
     private FloorSwitcherComponent floorSwitcherComponent;
     private LocationDetailsCard locationDetailsCard;
     private RouteInfoBarComponent routeInfoBarComponent;
+    private VisibleLocationsPanel visibleLocationsPanel;
 
     // Data
     private List<BCMapFloor> floors;
+    private final Map<String, BCMapFloor> floorsById = new HashMap<>();
     private BCBuilding firstBuilding;
     private List<BCLocation> cachedLocations;
     private List<BCCategory> cachedCategories;
 
+    // Map
+    private final SdkCallbackDispatcher sdkCallbacks = new SdkCallbackDispatcher();
+    private ViewChangeDispatcher viewChangeDispatcher;
+    private CameraController cameraController;
+    private MapCommandQueue mapCommands;
+    private final VisibleLocationsTracker visibleLocationsTracker = new VisibleLocationsTracker();
+    private String currentFloorId;
+    private double cameraLatitude = Double.NaN;
+    private double cameraLongitude = Double.NaN;
+    private double cameraZoom = Double.NaN;
+    private double cameraBearing = Double.NaN;
+    private double cameraPitch = Double.NaN;
+
+    // Saved state - the view restores once the map has rendered, the selection once data is loaded
+    private MapStateStore mapStateStore;
+    private MapState restoredState;
+    private boolean viewRestored;
+    private MapSnapshotStore mapSnapshotStore;
+    private boolean mapRendered;
+
+    // Routing
+    private final RouteCache routeCache = new RouteCache();
+    private RouteRequestCoordinator routeCoordinator;
+    private RoutePrefetcher routePrefetcher;
+    private BatchRouteService batchRouteService;
+    private ItineraryPlanner itineraryPlanner;
+    private WalkingTimeLoader walkingTimeLoader;
+    private HubRoutePrecomputer hubRoutePrecomputer;
+    private RouteAlternatives routeAlternatives;
+    private String alternativesLabel;
+    private final FloorSegmentCalculator floorSegmentCalculator = new FloorSegmentCalculator();
+    private RoutePlaybackController routePlayback;
+    private BCRoute displayedRoute;
+    private RouteKey displayedRouteKey; // Route set displayedRoute belongs to
+    private int displayedRouteIndex;    // Index of displayedRoute in that set
+
     // Activity result launcher for search
     private ActivityResultLauncher<Intent> searchActivityLauncher;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        StartupTrace.beginSection(StartupTrace.MAIN_CREATE);
         super.onCreate(savedInstanceState);
+
+        // Decode the last map picture while the layout inflates, unless startup has already;
+        // it arrives after onCreate
+        mapSnapshotStore = ((BecoApplication) getApplication()).getMapSnapshotStore();
+        mapSnapshotStore.load(this::showMapSnapshot);
+
         setContentView(R.layout.activity_main);
 
         initializeViews();
+        initializeRouting();
         setupActivityResultLauncher();
         setupMapView();
+        restoreMapState(savedInstanceState);
         loadMap();
+        StartupTrace.endSection(StartupTrace.MAIN_CREATE);
     }
 
     private void initializeViews() {
@@ -80,17 +198,20 @@ public class MainActivity extends AppCompatActivity {
         contentContainer = findViewById(R.id.contentContainer);
         mapView = findViewById(R.id.mapView);
         loadingOverlay = findViewById(R.id.loadingOverlay);
+        mapSnapshotView = findViewById(R.id.mapSnapshot);
 
         // Initialize components
         initializeSearchBarComponent();
         initializeFloorSwitcherComponent();
         initializeLocationDetailsCard();
         initializeRouteInfoBarComponent();
+        initializeVisibleLocationsPanel();
     }
 
     private void initializeSearchBarComponent() {
-        // Create the search bar component - it will inflate its own layout
-        searchBarComponent = new SearchBarComponent(this, contentContainer);
+        // Create the search bar component - it inflates its layouts once they are shown
+        searchBarComponent = new SearchBarComponent(this,
+                findViewById(R.id.searchBarStub), findViewById(R.id.searchBarRoutingStub));
 
         // Set up the listener
         searchBarComponent.setListener(new SearchBarComponent.SearchBarListener() {
@@ -123,38 +244,37 @@ public class MainActivity extends AppCompatActivity {
 
             @Override
             public void onLocationsSwapped(BCLocation newSource, BCLocation newDestination) {
-                Log.d(TAG, "Locations swapped - Source: " +
-                    (newSource != null ? newSource.getName() : "null") +
-                    ", Destination: " + (newDestination != null ? newDestination.getName() : "null"));
-                // TODO: Update map display or routing if needed
+                if (BuildConfig.DEBUG) {
+                    Log.d(TAG, "Locations swapped - Source: " +
+                        (newSource != null ? newSource.getName() : "null") +
+                        ", Destination: " + (newDestination != null ? newDestination.getName() : "null"));
+                }
+
+                if (newSource != null && newDestination != null) {
+                    routePrefetcher.noteSourceUsed(newSource);
+                    recalculateSwappedRoute(newSource, newDestination);
+                }
             }
         });
     }
 
     private void initializeFloorSwitcherComponent() {
-        // Create the floor switcher component - it will inflate its own layout
-        floorSwitcherComponent = new FloorSwitcherComponent(this, contentContainer);
+        // Create the floor switcher component - it inflates its layout once the floors are shown
+        floorSwitcherComponent = new FloorSwitcherComponent(this, (ViewStub) findViewById(R.id.floorSwitcherStub));
 
         // Set up the listener
         floorSwitcherComponent.setListener(new FloorSwitcherComponent.FloorSwitcherListener() {
             @Override
             public void onFloorSelected(BCMapFloor floor) {
-                try {
-                    mapView.selectFloor(floor);
-                    Log.d(TAG, "Floor selected: " + floor.getName());
-                } catch (BCMapException e) {
-                    Log.e(TAG, "Error selecting floor", e);
-                }
+                mapCommands.selectFloor(floor);
+                EventLog.log(FLOOR_PICKED, floor.getName());
             }
         });
     }
 
     private void initializeLocationDetailsCard() {
-        // Get the content container to add the card to
-        FrameLayout contentContainer = findViewById(R.id.contentContainer);
-
-        // Create the component - it will inflate its own layout
-        locationDetailsCard = new LocationDetailsCard(this, contentContainer);
+        // Create the component - it inflates its layout when a location is first shown
+        locationDetailsCard = new LocationDetailsCard(this, (ViewStub) findViewById(R.id.locationDetailsCardStub));
 
         // Set up the listener
         locationDetailsCard.setListener(new LocationDetailsCard.LocationDetailsListener() {
@@ -164,32 +284,77 @@ public class MainActivity extends AppCompatActivity {
                 // Just clear any existing source to ensure clean state
                 searchBarComponent.clearSource();
 
+                // On a multi-stop trip the navigation target is the last stop to add
+                if (itineraryPlanner.hasStops()) {
+                    itineraryPlanner.addStop(location);
+                }
+
                 // Launch search to select the source location
-                Log.d(TAG, "Navigation requested for destination: " + location.getName() + ". Launching search for source.");
+                EventLog.log(NAVIGATE_REQUESTED, location.getName());
                 launchSearchActivity();
             }
 
+            @Override
+            public void onAddStop(BCLocation location) {
+                if (itineraryPlanner.addStop(location)) {
+                    Toast.makeText(MainActivity.this, "Added " + location.getName() + " (" +
+                        itineraryPlanner.getStopCount() + " stops)", Toast.LENGTH_SHORT).show();
+                } else if (itineraryPlanner.getStopCount() >= ItineraryPlanner.MAX_STOPS) {
+                    Toast.makeText(MainActivity.this, "A trip can have at most " +
+                        ItineraryPlanner.MAX_STOPS + " stops", Toast.LENGTH_SHORT).show();
+                }
+                EventLog.log(ITINERARY_STOPS, itineraryPlanner.getStopCount());
+            }
+
             @Override
             public void onCardDismissed() {
+                // The user is no longer heading to this destination
+                routePrefetcher.cancel();
+
                 // Clear the search bar
                 searchBarComponent.clearText();
 
                 // Clear the selection on the map
-                try {
-                    mapView.clearSelection();
-                } catch (Exception e) {
-                    Log.e(TAG, "Failed to clear map selection", e);
-                }
+                mapCommands.clearSelection();
             }
         });
     }
 
+    private void initializeVisibleLocationsPanel() {
+        visibleLocationsPanel = new VisibleLocationsPanel(this, contentContainer);
+        visibleLocationsPanel.setListener(location -> {
+            EventLog.log(VIEW_LIST_SELECTED, location.getName());
+            handleLocationSelection(location.getId());
+        });
+        visibleLocationsTracker.setListener(visibleLocationsPanel);
+    }
+
+    /**
+     * Shows or hides the locations in view; the viewport is only queried while they are shown.
+     */
+    private void setVisibleLocationsShown(boolean shown) {
+        if (shown) {
+            visibleLocationsPanel.show();
+        } else {
+            visibleLocationsPanel.hide();
+        }
+        visibleLocationsTracker.setEnabled(shown);
+    }
+
     private void initializeRouteInfoBarComponent() {
-        routeInfoBarComponent = new RouteInfoBarComponent(this, contentContainer);
+        routeInfoBarComponent = new RouteInfoBarComponent(this, (ViewStub) findViewById(R.id.routeInfoBarStub));
         routeInfoBarComponent.setListener(new RouteInfoBarComponent.RouteInfoBarListener() {
             @Override
             public void onFloorSelected(String floorId, String floorName) {
-                Log.d(TAG, "Floor selected from route info: " + floorName + " (ID: " + floorId + ")");
+                EventLog.log(ROUTE_INFO_FLOOR, floorId);
+
+                // The floors are indexed already - jump straight to it
+                BCMapFloor resolvedFloor = floorsById.get(floorId);
+                if (resolvedFloor != null) {
+                    mapCommands.selectFloor(resolvedFloor);
+                    Toast.makeText(MainActivity.this, "Switched to " + floorName, Toast.LENGTH_SHORT).show();
+                    return;
+                }
 
                 // Find the floor object by ID and switch to it
                 try {
@@ -218,8 +383,8 @@ public class MainActivity extends AppCompatActivity {
                     }
 
                     if (targetFloor != null) {
-                        mapView.selectFloor(targetFloor);
-                        Log.d(TAG, "Successfully switched to floor: " + floorName);
+                        mapCommands.selectFloor(targetFloor);
+                        EventLog.log(FLOOR_SWITCHED, floorName);
                         Toast.makeText(MainActivity.this, "Switched to " + floorName, Toast.LENGTH_SHORT).show();
                     } else {
                         Log.w(TAG, "Floor not found: " + floorId);
@@ -232,28 +397,43 @@ public class MainActivity extends AppCompatActivity {
 
             }
 
+            @Override
+            public void onSegmentSelected(BCMapFloor floor, FloorSegment segment) {
+                // A segment chip - playback continues from the segment the user picked
+                if (routePlayback.getRoute() == displayedRoute) {
+                    routePlayback.select(segment.getIndex());
+                } else {
+                    showFloorSegment(segment);
+                }
+            }
+
+            @Override
+            public void onAlternativeSelected(int index) {
+                selectRouteAlternative(index);
+            }
+
             @Override
             public void onRouteInfoClosed() {
                 Log.d(TAG, "Route info bar closed");
 
+                // Drop any route still being calculated for the bar
+                routeCoordinator.cancel();
+                itineraryPlanner.clear();
+                routeAlternatives.clear();
+                routeInfoBarComponent.clearAlternatives();
+                routePlayback.stop();
+                displayedRoute = null;
+                displayedRouteKey = null;
+                routeCoordinator.releaseEngine();
+                setVisibleLocationsShown(true);
+
                 // Clear the search bar component and reset to initial view
                 searchBarComponent.reset();
 
-                // Clear the route from the map
-                try {
-                    mapView.clearAllRoutes();
-                    Log.d(TAG, "Routes cleared from map");
-                } catch (Exception e) {
-                    Log.e(TAG, "Failed to clear routes from map", e);
-                }
-
-                // Clear map selection
-                try {
-                    mapView.clearSelection();
-                    Log.d(TAG, "Map selection cleared");
-                } catch (Exception e) {
-                    Log.e(TAG, "Failed to clear map selection", e);
-                }
+                // Clear the route and the selection from the map
+                mapCommands.clearAllRoutes();
+                mapCommands.clearSelection();
+                Log.d(TAG, "Routes and selection cleared from map");
             }
         });
 
@@ -263,6 +443,79 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    private void initializeRouting() {
+        routeCoordinator = new RouteRequestCoordinator(routeCache,
+                (source, destination, waypoints) -> {
+                    // The engine replaces its route set - queued route commands belong before that
+                    mapCommands.flush();
+                    mapView.getRoute(source, destination, waypoints, null);
+                });
+        routeCoordinator.setListener(new RouteRequestCoordinator.Listener() {
+            @Override
+            public void onRoutePreview(RouteRequestCoordinator.Request request, List<BCRoute> routes) {
+                if (routeAlternatives.isFor(request.getSource(), request.getDestination())) {
+                    // Switching alternatives - the bar already shows the selected one
+                    return;
+                }
+                // Route details are known - show them now, the engine only needs to reload the geometry
+                EventLog.log(ROUTE_PREVIEW, request.getKey());
+                routeInfoBarComponent.showRoute(routes.get(0), request.getDestinationLabel());
+            }
+
+            @Override
+            public void onRouteReady(RouteRequestCoordinator.Request request, List<BCRoute> routes) {
+                if (routes == null || routes.isEmpty()) {
+                    Log.w(TAG, "No routes received or routes list is empty");
+                    return;
+                }
+
+                RouteAlternatives.Alternative selected = routeAlternatives.getSelected();
+                if (selected != null && selected.getKey().equals(request.getKey())
+                        && routeAlternatives.isFor(request.getSource(), request.getDestination())) {
+                    // The engine now holds the selected alternative's route set - draw it
+                    displayRoutes(routes, request.getKey(), selected.getRouteIndex(),
+                            request.getDestinationLabel());
+                    return;
+                }
+
+                displayRoutes(routes, request.getKey(), 0, request.getDestinationLabel());
+                boolean plainRoute = (request.getWaypoints() == null || request.getWaypoints().isEmpty())
+                        && RouteKey.DEFAULT_OPTIONS.equals(request.getKey().getOptionsKey());
+                if (plainRoute) {
+                    loadRouteAlternatives(request, routes);
+                } else {
+                    routeAlternatives.clear();
+                    routeInfoBarComponent.clearAlternatives();
+                }
+            }
+
+            @Override
+            public void onRouteFailed(RouteRequestCoordinator.Request request, BCRouteErrorCode errorCode) {
+                showRouteError(errorCode);
+                EventLog.dumpToLogcat("route failed");
+            }
+        });
+
+        routePrefetcher = new RoutePrefetcher(routeCache, routeCoordinator);
+        // Prefetching goes first; hub routes only use what is left of an idle channel
+        routeCoordinator.setIdleCallback(() -> {
+            routePrefetcher.pump();
+            hubRoutePrecomputer.onRouteChannelIdle();
+        });
+
+        // Symmetric: a single-floor A->B stands in for B->A, other pairs are measured both ways.
+        // Walking times go through the same service so they share its pairs with itineraries.
+        batchRouteService = new BatchRouteService(new RouteMetricsProvider.FromRoutes(routeCoordinator));
+        itineraryPlanner = new ItineraryPlanner(batchRouteService);
+        walkingTimeLoader = new WalkingTimeLoader(batchRouteService);
+        routeAlternatives = new RouteAlternatives(routeCoordinator);
+        routeInfoBarComponent.setFloorSegmentCalculator(floorSegmentCalculator);
+        routePlayback = new RoutePlaybackController(this::showFloorSegment);
+        BecoApplication application = (BecoApplication) getApplication();
+        hubRoutePrecomputer = new HubRoutePrecomputer(routeCoordinator, application.getHubRoutesFile());
+        hubRoutePrecomputer.setPreloaded(application.takePreloadedHubRoutes());
+    }
+
     private void setupActivityResultLauncher() {
         searchActivityLauncher = registerForActivityResult(
             new ActivityResultContracts.StartActivityForResult(),
@@ -280,46 +533,48 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void handleLocationSelection(String locationId) {
-        Log.d(TAG, "Location selected from search: " + locationId);
+        EventLog.log(SEARCH_SELECTED, locationId);
 
         // Find the location object from cached locations
         if (cachedLocations != null) {
             for (BCLocation location : cachedLocations) {
                 if (locationId.equals(location.getId())) {
-                    try {
-                        // First, select and highlight the location on the map
-                        mapView.selectLocation(location);
-                        Log.d(TAG, "Selected location: " + location.getName());
-
-                        // Check if we're in routing mode (destination location already set)
-                        BCLocation destinationLocation = searchBarComponent.getDestinationLocation();
-                        if (destinationLocation != null && !destinationLocation.getId().equals(location.getId())) {
-                            // We're selecting a source for routing (destination already exists)
-                            searchBarComponent.setSourceLocation(location);
+                    // First, select and highlight the location on the map
+                    mapCommands.selectLocation(location);
+                    EventLog.log(LOCATION_SELECTED, location.getName());
+
+                    // Check if we're in routing mode (destination location already set)
+                    BCLocation destinationLocation = searchBarComponent.getDestinationLocation();
+                    if (destinationLocation != null && !destinationLocation.getId().equals(location.getId())) {
+                        // We're selecting a source for routing (destination already exists)
+                        searchBarComponent.setSourceLocation(location);
+                        routePrefetcher.noteSourceUsed(location);
+                        if (BuildConfig.DEBUG) {
                             Log.d(TAG, "Routing mode: Source=" + location.getName() +
                                 ", Destination=" + destinationLocation.getName());
+                        }
 
-                            // Automatically trigger route calculation
+                        // Automatically trigger route calculation
+                        if (itineraryPlanner.getStopCount() > 1) {
+                            planItinerary(location);
+                        } else {
                             calculateRoute(location, destinationLocation);
+                        }
 
-                            // Don't show location details card in routing mode
-                            // The search bar will automatically switch to routing view
-                        } else {
-                            // Normal single location selection
-                            searchBarComponent.setDestinationLocation(location);
+                        // Don't show location details card in routing mode
+                        // The search bar will automatically switch to routing view
+                    } else {
+                        // Normal single location selection
+                        searchBarComponent.setDestinationLocation(location);
 
-                            // Show the location details card
-                            locationDetailsCard.showLocation(location);
-                        }
+                        // Show the location details card
+                        locationDetailsCard.showLocation(location);
 
-                        return;
-                    } catch (BCLocationNotFoundException e) {
-                        Log.e(TAG, "Location not found in map cache: " + e.getMessage());
-                        return;
-                    } catch (BCMapException e) {
-                        Log.e(TAG, "Failed to select/focus on location", e);
-                        return;
+                        // Navigate is the likely next tap - warm up routes to this destination
+                        routePrefetcher.prefetchTo(location);
                     }
+
+                    return;
                 }
             }
         }
@@ -334,11 +589,18 @@ public class MainActivity extends AppCompatActivity {
             return;
         }
 
-        Log.d(TAG, "Launching search activity with " + cachedLocations.size() + " locations, " + cachedCategories.size() + " categories, and " + (floors != null ? floors.size() : 0) + " floors");
+        EventLog.log(SEARCH_LAUNCHED, cachedLocations.size(), cachedCategories.size());
 
         // Use static data approach to avoid Intent size limitations
         SearchActivity.setSearchData(cachedLocations, cachedCategories, floors);
 
+        // Walking times are shown from the current source, or to the destination while picking a source
+        BCLocation routeOrigin = searchBarComponent.getSourceLocation();
+        if (routeOrigin == null) {
+            routeOrigin = searchBarComponent.getDestinationLocation();
+        }
+        SearchActivity.setRouteContext(routeOrigin, walkingTimeLoader);
+
         Intent searchIntent = new Intent(this, SearchActivity.class);
         searchActivityLauncher.launch(searchIntent);
 
@@ -347,98 +609,144 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void setupMapView() {
-        mapView.setListener(new BCMapViewListener() {
+        // Take over the map the splash screen started; its callbacks so far are replayed
+        BCMapView preloaded = MapPreloader.get().takeMapView(this, sdkCallbacks);
+        if (preloaded != null) {
+            replaceMapView(preloaded);
+            mapPreloaded = true;
+        } else {
+            mapView.setListener(sdkCallbacks);
+        }
+
+        viewChangeDispatcher = new ViewChangeDispatcher();
+        viewChangeDispatcher.addConsumer((latitude, longitude, zoom, bearing, pitch, timestamp) ->
+                EventLog.log(VIEW_CHANGED, latitude, longitude, zoom, bearing, pitch));
+        viewChangeDispatcher.addConsumer((latitude, longitude, zoom, bearing, pitch, timestamp) -> {
+            // Kept for the saved state
+            cameraLatitude = latitude;
+            cameraLongitude = longitude;
+            cameraZoom = zoom;
+            cameraBearing = bearing;
+            cameraPitch = pitch;
+        });
+        cameraController = new CameraController(new CameraController.Engine() {
+            @Override
+            public void setViewport(BCMapViewOptions options) throws BCMapException {
+                mapView.setViewport(options);
+            }
+
+            @Override
+            public void updateZoom(double zoom) throws BCMapException {
+                mapView.updateZoom(zoom);
+            }
+
+            @Override
+            public void updateBearing(double bearing) throws BCMapException {
+                mapView.updateBearing(bearing);
+            }
+
+            @Override
+            public void updatePitch(double pitch) throws BCMapException {
+                mapView.updatePitch(pitch);
+            }
+        });
+        viewChangeDispatcher.addConsumer(cameraController);
+
+        mapCommands = new MapCommandQueue(mapView);
+        mapCommands.setListener((kind, e) -> {
+            if (e instanceof BCLocationNotFoundException) {
+                Log.e(TAG, "Location not found in map cache: " + e.getMessage());
+            } else if (kind == MapCommandQueue.Kind.SELECT_FLOOR) {
+                Toast.makeText(MainActivity.this, "Failed to switch floor", Toast.LENGTH_SHORT).show();
+            }
+        });
+
+        // SDK callbacks reach the listeners below on the main thread, bursts collapsed
+        mapView.setRouteListener(sdkCallbacks);
+        sdkCallbacks.setMapListener(new BCMapViewListener() {
             @Override
             public void onRenderComplete(BCSite site) {
                 // Log current site from mapView
                 BCSite currentSite = mapView.getSite();
-                Log.d(TAG, "Map Render Complete - Current site from mapView: " +
-                    (currentSite != null ? currentSite.getSiteName() : "null"));
+                EventLog.log(RENDER_COMPLETE, currentSite != null ? currentSite.getSiteName() : null);
 
                 // Hide loading overlay
+                StartupTrace.mark(StartupTrace.RENDER_COMPLETE);
+                mapRendered = true;
                 hideLoader();
+                markSearchReady();
 
                 // Get first building and floors
                 if (site.getBuildings() != null && !site.getBuildings().isEmpty()) {
                     firstBuilding = site.getBuildings().get(0);
                     floors = firstBuilding.getFloors();
 
-                    Log.d(TAG, "Found " + (floors != null ? floors.size() : 0) + " floors");
+                    // Index every floor of the site for route playback
+                    floorsById.clear();
+                    for (BCBuilding building : site.getBuildings()) {
+                        if (building.getFloors() != null) {
+                            for (BCMapFloor floor : building.getFloors()) {
+                                floorsById.put(floor.getId(), floor);
+                            }
+                        }
+                    }
+
+                    EventLog.log(FLOORS_FOUND, floors != null ? floors.size() : 0);
+                    if (floors != null && !floors.isEmpty()) {
+                        currentFloorId = floors.get(0).getId();
+                        visibleLocationsTracker.setFloor(currentFloorId);
+                    }
                 }
 
+                // List the locations in view as the camera moves
+                setVisibleLocationsShown(!routeInfoBarComponent.isVisible());
+
                 // Create demo location
                 createDemoLocation();
+
+                // Reopen at the view the user left
+                applyRestoredState();
             }
 
             @Override
             public void onInitError(BCInitErrorCode errorCode) {
                 Log.e(TAG, "Init Error: " + errorCode.getCode() + " - " + errorCode.getMessage());
+                EventLog.dumpToLogcat("init error");
             }
 
             @Override
             public void onFloorChanged(BCMapFloor floor) {
-                Log.d(TAG, "Floor Changed to: " + floor.getName());
+                EventLog.log(FLOOR_CHANGED, floor.getName());
                 // Update the floor switcher component
                 if (floorSwitcherComponent != null) {
                     floorSwitcherComponent.updateSelectedFloor(floor);
                 }
+                currentFloorId = floor.getId();
+                visibleLocationsTracker.setFloor(currentFloorId);
+                // Without position fixes, changing floors is how the user moves through the route
+                routePlayback.onFloorShown(currentFloorId);
             }
 
             @Override
             public void onViewChange(BCMapViewOptions viewOptions, long timestamp) {
-                Log.d(TAG, "=== VIEW CHANGE EVENT ===");
-                Log.d(TAG, "Timestamp: " + timestamp);
-
-                if (viewOptions != null) {
-                    // Log center coordinates
-                    if (viewOptions.getCenter() != null && viewOptions.getCenter().size() >= 2) {
-                        double latitude = viewOptions.getCenter().get(0);
-                        double longitude = viewOptions.getCenter().get(1);
-                        Log.d(TAG, "Center: [" + latitude + ", " + longitude + "]");
-                    }
-
-                    // Log zoom level
-                    if (viewOptions.getZoom() != null) {
-                        Log.d(TAG, "Zoom: " + viewOptions.getZoom());
-                    }
-
-                    // Log bearing (rotation)
-                    if (viewOptions.getBearing() != null) {
-                        Log.d(TAG, "Bearing: " + viewOptions.getBearing() + "°");
-                    }
-
-                    // Log pitch (tilt)
-                    if (viewOptions.getPitch() != null) {
-                        Log.d(TAG, "Pitch: " + viewOptions.getPitch() + "°");
-                    }
-
-                    // Log formatted summary
-                    Log.d(TAG, "View Summary: Zoom=" + viewOptions.getZoom() +
-                        ", Bearing=" + viewOptions.getBearing() + "°" +
-                        ", Pitch=" + viewOptions.getPitch() + "°");
-
-                } else {
-                    Log.w(TAG, "View options are null");
-                }
-
-                Log.d(TAG, "========================");
+                // Fired for every camera step of a gesture, on the SDK's thread - consumers get the
+                // latest once per frame
+                viewChangeDispatcher.onViewChange(viewOptions, timestamp);
             }
 
             @Override
             public void onLocationsSelected(List<BCLocation> locations, long timestamp) {
-                Log.d(TAG, "Locations Selected: " + locations.size() + " locations at timestamp " + timestamp);
+                EventLog.log(LOCATIONS_SELECTED, locations.size(), timestamp);
 
                 // Log details of selected locations
                 for (int i = 0; i < locations.size(); i++) {
-                    BCLocation location = locations.get(i);
-                    Log.d(TAG, "Location " + i + ": " + location.getId() +
-                        (location.getName() != null ? " (" + location.getName() + ")" : ""));
+                    EventLog.log(SELECTED_LOCATION, locations.get(i).getId(), i);
                 }
 
                 // Handle location selection - show card for the first location
                 if (!locations.isEmpty()) {
                     BCLocation primaryLocation = locations.get(0);
-                    Log.d(TAG, "Primary selected location: " + primaryLocation.getId());
+                    EventLog.log(PRIMARY_SELECTED, primaryLocation.getId());
 
                     // Check if we're in routing mode - don't overwrite destination if we are
                     BCLocation currentDestination = searchBarComponent.getDestinationLocation();
@@ -451,12 +759,16 @@ public class MainActivity extends AppCompatActivity {
 
                         // Show the location details card
                         locationDetailsCard.showLocation(primaryLocation);
+
+                        // Navigate is the likely next tap - warm up routes to this destination
+                        routePrefetcher.prefetchTo(primaryLocation);
                     }
                     // Routing mode - don't overwrite destination, preserve existing state
                 } else {
                     // No locations selected - dismiss card if it's showing
                     if (locationDetailsCard.isVisible()) {
                         locationDetailsCard.dismiss();
+                        routePrefetcher.cancel();
                     }
                 }
             }
@@ -464,22 +776,35 @@ public class MainActivity extends AppCompatActivity {
             @Override
             public void onAppDataLoaded() {
                 Log.d(TAG, "All app data loaded");
+                StartupTrace.mark(StartupTrace.APP_DATA_LOADED);
 
                 // Cache the data for search functionality
                 cachedCategories = mapView.getCategories();
                 cachedLocations = mapView.getLocations();
-
-                if (cachedCategories != null) {
-                    Log.d(TAG, "Categories cached: " + cachedCategories.size());
-                }
-
-                if (cachedLocations != null) {
-                    Log.d(TAG, "Locations cached: " + cachedLocations.size());
-                }
+                markSearchReady();
+
+                // Site data changed - previously calculated routes may be stale
+                routePrefetcher.cancel();
+                routeCache.invalidateAll();
+                routeCoordinator.resetEngineState();
+                batchRouteService.invalidate();
+                walkingTimeLoader.invalidate();
+                routePrefetcher.setLocations(cachedLocations);
+                routeAlternatives.setLocations(cachedLocations);
+                visibleLocationsTracker.setLocations(cachedLocations);
+
+                // Precompute hub routes for this site version in the background
+                BCSite site = mapView.getSite();
+                String siteVersion = HubRouteTable.siteVersionOf(
+                        site != null ? site.getSiteName() : null, cachedLocations);
+                hubRoutePrecomputer.start(siteVersion, cachedLocations);
+
+                EventLog.log(DATA_CACHED, cachedCategories != null ? cachedCategories.size() : 0,
+                        cachedLocations != null ? cachedLocations.size() : 0);
 
                 // Log available amenity types
                 List<String> amenityTypes = mapView.getAvailableAmenityTypes();
-                Log.d(TAG, "Available amenity types: " + amenityTypes.toString());
+                EventLog.log(AMENITY_TYPES, amenityTypes);
 
                 // Show floor switcher if floors are available
                 if (floors != null && !floors.isEmpty()) {
@@ -499,6 +824,9 @@ public class MainActivity extends AppCompatActivity {
 
                 // Search functionality is now ready
                 Log.d(TAG, "Search functionality is now available");
+
+                // Bring back the selection or route the user left
+                applyRestoredState();
             }
         });
 
@@ -518,6 +846,12 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void hideLoader() {
+        // The search bar comes into view with the map
+        searchBarComponent.inflate();
+        if (mapSnapshotView.getVisibility() == View.VISIBLE) {
+            crossFadeFromSnapshot();
+            return;
+        }
         if (loadingOverlay != null) {
             // Fade out animation
             loadingOverlay.animate()
@@ -532,6 +866,42 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    /**
+     * Shows the last map picture under the loader until the live map has rendered.
+     */
+    private void showMapSnapshot(MapSnapshotStore.Snapshot snapshot) {
+        if (snapshot == null || mapRendered || isDestroyed()) {
+            return; // Nothing stored, or too late to help
+        }
+        if (restoredState != null && !snapshot.matches(restoredState)) {
+            return; // The map reopens elsewhere - the picture would jump
+        }
+        mapSnapshotView.setImageBitmap(snapshot.getBitmap());
+        mapSnapshotView.setVisibility(View.VISIBLE);
+        loadingOverlay.setBackgroundResource(R.color.loading_scrim);
+    }
+
+    /**
+     * Puts the live map under the picture and fades the picture and the loader out together.
+     */
+    private void crossFadeFromSnapshot() {
+        contentContainer.setAlpha(1f);
+        contentContainer.setVisibility(View.VISIBLE);
+        loadingOverlay.animate()
+                .alpha(0f)
+                .setDuration(SNAPSHOT_FADE_MILLIS)
+                .withEndAction(() -> loadingOverlay.setVisibility(View.GONE))
+                .start();
+        mapSnapshotView.animate()
+                .alpha(0f)
+                .setDuration(SNAPSHOT_FADE_MILLIS)
+                .withEndAction(() -> {
+                    mapSnapshotView.setVisibility(View.GONE);
+                    mapSnapshotView.setImageBitmap(null);
+                })
+                .start();
+    }
+
     private void showContent() {
         if (contentContainer != null) {
             contentContainer.setVisibility(View.VISIBLE);
@@ -546,46 +916,65 @@ public class MainActivity extends AppCompatActivity {
 
 
 
-    private void loadMap() {
-        // Initialize map
-        BCMapOptions.Init initOptions = BCMapOptions.Init.builder()
-                .setClientId(CLIENT_ID)
-                .setClientSecret(CLIENT_SECRET)
-                .setSiteIdentifier(SITE_IDENTIFIER)
-                .build();
+    /**
+     * Puts {@code newMapView} where the layout's map view is.
+     */
+    private void replaceMapView(BCMapView newMapView) {
+        int index = contentContainer.indexOfChild(mapView);
+        contentContainer.removeView(mapView);
+        newMapView.setId(R.id.mapView);
+        contentContainer.addView(newMapView, index, mapView.getLayoutParams());
+        mapView = newMapView;
+    }
 
-        BCMapOptions.SiteOptions siteOptions = BCMapOptions.SiteOptions.builder()
-                .setBackgroundColor("#E5E5E5")
-                .build();
+    private void loadMap() {
+        if (mapPreloaded) {
+            Log.d(TAG, "Map was initialised during the splash screen");
+            return;
+        }
 
+        // Initialize map
+        StartupTrace.beginSection(StartupTrace.INITIALISE_MAP);
+        mapView.initialiseMap(MapConfig.initOptions(), MapConfig.siteOptions());
+        StartupTrace.endSection(StartupTrace.INITIALISE_MAP);
+    }
 
-        mapView.initialiseMap(initOptions, siteOptions);
+    /**
+     * Search is ready once the search bar is on screen and the locations to search are loaded.
+     */
+    private void markSearchReady() {
+        if (mapRendered && cachedLocations != null) {
+            StartupTrace.mark(StartupTrace.SEARCH_READY);
+        }
     }
 
-    private void changeViewport() throws BCMapException {
-        BCMapViewOptions options = new BCMapViewOptions();
-        options.setCenter(Arrays.asList(12.9716, 77.5946));
-        options.setZoom(19.0);
-        options.setBearing(0.0);
-        options.setPitch(45.0);
+    // Camera changes go through the camera controller: everything committed within a frame
+    // reaches the map as a single setViewport
 
-        mapView.setViewport(options);
+    private void changeViewport() {
+        cameraController.edit()
+                .center(12.9716, 77.5946)
+                .zoom(19.0)
+                .bearing(0.0)
+                .pitch(45.0)
+                .commit();
     }
 
     private void resetViewport() throws BCMapException {
+        cameraController.cancel();
         mapView.resetDefaultViewport();
     }
 
-    private void updateZoomLevel(double zoom) throws BCMapException {
-        mapView.updateZoom(zoom);
+    private void updateZoomLevel(double zoom) {
+        cameraController.edit().zoom(zoom).commit();
     }
 
-    private void updateBearing(double bearing) throws BCMapException {
-        mapView.updateBearing(bearing);
+    private void updateBearing(double bearing) {
+        cameraController.edit().bearing(bearing).commit();
     }
 
-    private void updatePitch(double pitch) throws BCMapException {
-        mapView.updatePitch(pitch);
+    private void updatePitch(double pitch) {
+        cameraController.edit().pitch(pitch).commit();
     }
 
     // ================================================================================================
@@ -593,112 +982,403 @@ public class MainActivity extends AppCompatActivity {
     // ================================================================================================
 
     private void setupRouteListener() {
-        mapView.setRouteListener(new BCRouteListener() {
+        sdkCallbacks.setRouteListener(new BCRouteListener() {
             @Override
             public void onRouteCalculated(List<BCRoute> routes) {
-                Log.d(TAG, "Route calculated successfully!");
-                Log.d(TAG, "Received " + (routes != null ? routes.size() : 0) + " routes");
-
-                // Process and log route details
-                if (routes != null && !routes.isEmpty()) {
-
-                    // Show route info bar for the first route
-                    BCRoute primaryRoute = routes.get(0);
-                    String destinationName = searchBarComponent.getDestinationLocation() != null ?
-                        searchBarComponent.getDestinationLocation().getName() : "Unknown Destination";
-
-                    runOnUiThread(() -> {
-                        routeInfoBarComponent.showRoute(primaryRoute, destinationName);
-                    });
-
-                    // Automatically display the first route segment on the map
-                    try {
-                        Log.d(TAG, "Displaying first route segment on map...");
-                        mapView.showRoute(0); // Show the first route segment (index 0)
-                        Log.d(TAG, "✅ First route segment displayed on map successfully");
-
-                        // Log route details for debugging
-                        Log.d(TAG, "Route details - Distance: " + primaryRoute.getFormattedDistance() +
-                              ", Time: " + primaryRoute.getFormattedTime() +
-                              ", Steps: " + (primaryRoute.getSteps() != null ? primaryRoute.getSteps().size() : 0));
-
-                    } catch (Exception e) {
-                        Log.e(TAG, "❌ Failed to display route on map", e);
-                        // Don't show error to user as route info is still available
-                        // The route info bar will still be shown with route details
-                    }
+                EventLog.log(ROUTES_RECEIVED, routes != null ? routes.size() : 0);
 
-                } else {
-                    Log.w(TAG, "No routes received or routes list is empty");
-                }
+                // The coordinator attributes the result to its request and drops superseded ones
+                routeCoordinator.onRouteCalculated(routes);
             }
 
             @Override
             public void onError(BCRouteErrorCode errorCode) {
                 Log.e(TAG, "Route calculation failed: " + errorCode.getCode() + " - " + errorCode.getMessage());
+                routeCoordinator.onRouteError(errorCode);
+            }
+        });
+    }
 
-                // Show user-friendly error message based on error code
-                runOnUiThread(() -> {
-                    String userMessage;
-                    switch (errorCode) {
-                        case NO_ROUTE_FOUND:
-                            userMessage = "No route found between selected locations. Please try different locations.";
-                            break;
-                        case INVALID_PARAMETERS:
-                            userMessage = "Invalid route parameters. Please check your selections.";
-                            break;
-                        case ROUTE_DATA_CORRUPTION:
-                            userMessage = "Route data is corrupted. Please try again.";
-                            break;
-                        case ROUTE_CONTROLLER_UNAVAILABLE:
-                            userMessage = "Route system is not ready. Please try again.";
-                            break;
-                        default:
-                            userMessage = "Route calculation failed: " + errorCode.getMessage();
-                            break;
-                    }
+    private void showRouteError(BCRouteErrorCode errorCode) {
+        // Show user-friendly error message based on error code
+        String userMessage;
+        if (errorCode == null) {
+            userMessage = "Route calculation failed. Please try again.";
+        } else {
+            switch (errorCode) {
+                case NO_ROUTE_FOUND:
+                    userMessage = "No route found between selected locations. Please try different locations.";
+                    break;
+                case INVALID_PARAMETERS:
+                    userMessage = "Invalid route parameters. Please check your selections.";
+                    break;
+                case ROUTE_DATA_CORRUPTION:
+                    userMessage = "Route data is corrupted. Please try again.";
+                    break;
+                case ROUTE_CONTROLLER_UNAVAILABLE:
+                    userMessage = "Route system is not ready. Please try again.";
+                    break;
+                default:
+                    userMessage = "Route calculation failed: " + errorCode.getMessage();
+                    break;
+            }
+        }
 
-                    Toast.makeText(MainActivity.this, userMessage, Toast.LENGTH_LONG).show();
-                });
+        Toast.makeText(MainActivity.this, userMessage, Toast.LENGTH_LONG).show();
+    }
+
+    private void calculateRoute(BCLocation startLocation, BCLocation endLocation) {
+        calculateRoute(startLocation, endLocation, null);
+    }
+
+    /**
+     * @param knownSummary Summary to show while the map engine calculates the route, e.g. from saved
+     *                     state; null to look it up in the hub route table
+     */
+    private void calculateRoute(BCLocation startLocation, BCLocation endLocation, RouteSummary knownSummary) {
+        // The user has picked both ends - remaining prefetches are no longer useful
+        routePrefetcher.cancel();
+
+        // Show loading message unless the route is already known; hub routes are summarised from
+        // the precomputed table right away while the map engine calculates the route to draw
+        RouteKey routeKey = RouteKey.of(startLocation, endLocation, null, RouteKey.DEFAULT_OPTIONS);
+        if (!routeCache.contains(routeKey)) {
+            RouteSummary hubRoute = knownSummary != null
+                    ? knownSummary : hubRoutePrecomputer.lookup(startLocation, endLocation);
+            if (hubRoute != null) {
+                EventLog.log(HUB_ROUTE, routeKey);
+                routeInfoBarComponent.showRouteSummary(hubRoute, endLocation.getName());
+            } else {
+                Toast.makeText(this, "Calculating route...", Toast.LENGTH_SHORT).show();
+            }
+        }
+
+        // Calculate route with no waypoints and default options; the label is captured now so a
+        // late result can never be shown under a destination picked afterwards
+        RouteRequestCoordinator.Request request = routeCoordinator.request(
+                startLocation, endLocation, null, RouteKey.DEFAULT_OPTIONS, endLocation.getName());
+
+        EventLog.log(ROUTE_REQUESTED, routeKey, request.getSequence());
+    }
+
+    /**
+     * Orders the itinerary stops for the shortest walk from the start and routes through them.
+     */
+    private void planItinerary(BCLocation startLocation) {
+        int stopCount = itineraryPlanner.getStopCount();
+        EventLog.log(ITINERARY_OPTIMIZING, startLocation.getName(), stopCount);
+        routePrefetcher.cancel();
+        // The trip replaces the route on screen - its matrix requests must not wait for it
+        routeCoordinator.releaseEngine();
+        Toast.makeText(this, "Optimizing " + stopCount + " stops...", Toast.LENGTH_SHORT).show();
+
+        itineraryPlanner.plan(startLocation, (start, orderedStops) -> {
+            if (orderedStops.isEmpty()) {
+                return;
             }
+            BCLocation lastStop = orderedStops.get(orderedStops.size() - 1);
+            List<BCLocation> waypoints = new ArrayList<>(orderedStops.subList(0, orderedStops.size() - 1));
+            EventLog.log(ITINERARY_ORDERED, lastStop.getName(), orderedStops.size());
+
+            routeCoordinator.request(start, lastStop, waypoints, RouteKey.DEFAULT_OPTIONS,
+                    lastStop.getName() + " (" + orderedStops.size() + " stops)");
         });
     }
 
-    private void calculateRoute(BCLocation startLocation, BCLocation endLocation) {
-        Log.d(TAG, "Calculating route from '" + startLocation.getName() +
-            "' to '" + endLocation.getName() + "'");
+    /**
+     * Shows the route for swapped endpoints. A cached reverse route is used directly; otherwise a
+     * reversible forward route is shown at once and replaced when the true reverse route arrives.
+     */
+    private void recalculateSwappedRoute(BCLocation newSource, BCLocation newDestination) {
+        RouteKey reverseKey = RouteKey.of(newSource, newDestination, null, RouteKey.DEFAULT_OPTIONS);
+
+        if (!routeCache.contains(reverseKey)) {
+            BCRoute forwardRoute = RouteReversal.findReversibleForward(routeCache, reverseKey);
+            if (forwardRoute != null) {
+                // Same path walked backwards - distance, time and floor are unchanged
+                EventLog.log(ROUTE_REVERSED, reverseKey);
+                routeInfoBarComponent.showRoute(forwardRoute, newDestination.getName());
+            }
+        }
 
-        try {
-            // Show loading message
-            Toast.makeText(this, "Calculating route...", Toast.LENGTH_SHORT).show();
+        // Recalculate in the background; the result replaces the preview (e.g. one-way escalators)
+        routeCoordinator.request(newSource, newDestination, null, RouteKey.DEFAULT_OPTIONS,
+                newDestination.getName());
+    }
+
+    /**
+     * Requests the other route variants for the pair just routed and offers them in the route bar.
+     */
+    private void loadRouteAlternatives(RouteRequestCoordinator.Request request, List<BCRoute> fastestRoutes) {
+        alternativesLabel = request.getDestinationLabel();
+        routeAlternatives.load(request.getSource(), request.getDestination(), request.getKey(), fastestRoutes,
+                alternatives -> routeInfoBarComponent.setAlternatives(
+                        alternatives.getLabels(), alternatives.getSelectedIndex()));
+        routeInfoBarComponent.setAlternatives(routeAlternatives.getLabels(), routeAlternatives.getSelectedIndex());
+    }
+
+    /**
+     * Switches to another route alternative. Its details are shown from the stored result at once;
+     * the map draws it directly if the engine holds its route set, otherwise once it is reloaded.
+     */
+    private void selectRouteAlternative(int index) {
+        if (index >= routeAlternatives.size()) {
+            return;
+        }
+        RouteAlternatives.Alternative alternative = routeAlternatives.get(index);
+        routeAlternatives.setSelectedIndex(index);
+        EventLog.log(ALTERNATIVE_SELECTED, alternative.getLabel());
+
+        routeInfoBarComponent.showRoute(alternative.getRoute(), alternativesLabel);
+        if (alternative.getKey().equals(routeCoordinator.getLoadedKey())) {
+            showRouteOnMap(alternative.getKey(), alternative.getRouteIndex());
+            onRouteDisplayed(alternative.getRoute());
+        } else {
+            RouteKey key = alternative.getKey();
+            BCLocation source = searchBarComponent.getSourceLocation();
+            BCLocation destination = searchBarComponent.getDestinationLocation();
+            if (routeAlternatives.isFor(source, destination)) {
+                routeCoordinator.request(source, destination, alternative.getWaypoints(), key.getOptionsKey(),
+                        alternativesLabel);
+            }
+        }
+    }
 
-            // Calculate route with no waypoints and default options
-            mapView.getRoute(startLocation, endLocation, null, null);
+    /**
+     * Follows a route that was just drawn: the map follows the user through the floors of a
+     * multi-floor route by its segments.
+     */
+    private void onRouteDisplayed(BCRoute route) {
+        StartupTrace.mark(StartupTrace.FIRST_ROUTE_READY);
+        displayedRoute = route;
+        routePlayback.stop();
+        if (route.isMultiFloor()) {
+            // Starts on the first floor; floor changes move it on
+            routePlayback.follow(route, floorSegmentCalculator.calculate(route));
+        }
+    }
 
-            Log.d(TAG, "Route calculation initiated successfully");
+    /**
+     * Shows a route in the route info bar and draws it on the map.
+     *
+     * @param routes The route set the map engine holds
+     * @param key The key of that route set
+     * @param routeIndex The route of the set to show
+     */
+    private void displayRoutes(List<BCRoute> routes, RouteKey key, int routeIndex, String destinationName) {
+        BCRoute primaryRoute = routes.get(routeIndex);
+
+        routeInfoBarComponent.showRoute(primaryRoute, destinationName);
+        showRouteOnMap(key, routeIndex);
+
+        onRouteDisplayed(primaryRoute);
+        setVisibleLocationsShown(false);
+    }
+
+    /**
+     * Draws a route of the route set the engine holds and keeps that set in the engine while the
+     * route is on screen.
+     *
+     * @param key The key of the route set, which must be the one the engine calculated last
+     * @param routeIndex Index into that route set
+     */
+    private void showRouteOnMap(RouteKey key, int routeIndex) {
+        displayedRouteKey = key;
+        displayedRouteIndex = routeIndex;
+        routeCoordinator.holdEngine(key);
+        redrawDisplayedRoute();
+    }
 
-        } catch (BCMapException e) {
-            Log.e(TAG, "Map operation failed during route calculation", e);
-            Toast.makeText(this, "Route calculation failed. Please try again.",
-                Toast.LENGTH_LONG).show();
+    /**
+     * Draws the displayed route again. showRoute draws from whatever the engine calculated last, so
+     * nothing is drawn once the engine holds another route set.
+     */
+    private void redrawDisplayedRoute() {
+        if (displayedRouteKey == null || !displayedRouteKey.equals(routeCoordinator.getLoadedKey())) {
+            return;
+        }
+        // A failure is only logged - the route info bar still shows the route details
+        mapCommands.showRoute(displayedRouteIndex);
+        EventLog.log(ROUTE_DISPLAYED, displayedRouteIndex);
+    }
 
+    /**
+     * Shows a floor segment of the displayed route: selects its floor, keeps the route drawn and
+     * highlights the segment's chip. Route playback and taps on the chips both come through here.
+     */
+    private void showFloorSegment(FloorSegment segment) {
+        BCMapFloor floor = floorsById.get(segment.getFloorId());
+        if (floor != null && !floor.getId().equals(currentFloorId)) {
+            mapCommands.selectFloor(floor);
         }
+        // Keep the route on top of the newly selected floor
+        redrawDisplayedRoute();
+        routeInfoBarComponent.setSelectedSegment(segment.getIndex());
+        EventLog.log(SEGMENT_SHOWN, segment.getFloorId(), segment.getIndex());
+    }
+
+    @Override
+    public void onUserInteraction() {
+        super.onUserInteraction();
+        // Hub routes are only calculated while the user leaves the map alone
+        hubRoutePrecomputer.onUserActivity();
     }
 
     @Override
     protected void onResume() {
         super.onResume();
         mapView.onResume();
+        walkingTimeLoader.setSuspended(false);
     }
 
     @Override
     protected void onPause() {
+        MapState state = captureMapState();
+        if (state != null) {
+            mapStateStore.save(state);
+            // The map is still on screen - keep a picture of it for the next launch
+            mapSnapshotStore.capture(getWindow(), mapView, state);
+        }
+        // A paused map engine does not answer route requests
+        walkingTimeLoader.setSuspended(true);
         mapView.onPause();
         super.onPause();
     }
 
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        MapState state = captureMapState();
+        if (state != null) {
+            outState.putByteArray(STATE_MAP, state.toBytes());
+        }
+    }
+
+    // ================================================================================================
+    // SAVED STATE
+    // ================================================================================================
+
+    /**
+     * Picks up the state saved with the activity, or else the one stored on disk at the last pause.
+     */
+    private void restoreMapState(Bundle savedInstanceState) {
+        mapStateStore = ((BecoApplication) getApplication()).getMapStateStore();
+        MapState saved = savedInstanceState != null
+                ? MapState.fromBytes(savedInstanceState.getByteArray(STATE_MAP)) : null;
+        if (saved != null) {
+            restoredState = saved;
+        } else {
+            mapStateStore.load(state -> {
+                restoredState = state;
+                applyRestoredState();
+            });
+        }
+    }
+
+    /**
+     * Applies as much of the restored state as the map is ready for; called again as it gets ready.
+     */
+    private void applyRestoredState() {
+        MapState state = restoredState;
+        if (state == null || floorsById.isEmpty()) {
+            return;
+        }
+        if (!viewRestored) {
+            viewRestored = true;
+            BCMapFloor floor = state.getFloorId() != null ? floorsById.get(state.getFloorId()) : null;
+            if (floor != null) {
+                mapCommands.selectFloor(floor);
+            }
+            restoreCamera(state);
+        }
+        if (cachedLocations == null) {
+            return;
+        }
+        restoredState = null;
+
+        BCLocation source = findCachedLocation(state.getRouteSourceId());
+        BCLocation destination = findCachedLocation(state.getRouteDestinationId());
+        BCLocation selected = findCachedLocation(state.getSelectedLocationId());
+        if (state.hasRoute() && source != null && destination != null) {
+            EventLog.log(ROUTE_RESTORED, destination.getName());
+            searchBarComponent.setDestinationLocation(destination);
+            searchBarComponent.setSourceLocation(source);
+            calculateRoute(source, destination, state.getRouteSummary());
+        } else if (selected != null) {
+            EventLog.log(SELECTION_RESTORED, selected.getName());
+            mapCommands.selectLocation(selected);
+            searchBarComponent.setDestinationLocation(selected);
+            locationDetailsCard.showLocation(selected);
+            routePrefetcher.prefetchTo(selected);
+        } else {
+            return;
+        }
+        // Selecting may move the camera - put it back once the selection has run
+        mapCommands.flush();
+        restoreCamera(state);
+    }
+
+    private void restoreCamera(MapState state) {
+        cameraController.edit()
+                .center(state.getLatitude(), state.getLongitude())
+                .zoom(state.getZoom())
+                .bearing(state.getBearing())
+                .pitch(state.getPitch())
+                .commit();
+    }
+
+    /**
+     * @return The state to reopen at, or null while the map has not rendered or a restore is pending
+     */
+    private MapState captureMapState() {
+        if (floorsById.isEmpty() || restoredState != null) {
+            return null;
+        }
+        BCLocation source = searchBarComponent.getSourceLocation();
+        BCLocation destination = searchBarComponent.getDestinationLocation();
+        boolean routeShown = displayedRoute != null && source != null && destination != null;
+        BCLocation selected = !routeShown && locationDetailsCard.isVisible() ? destination : null;
+        return new MapState(cameraLatitude, cameraLongitude, cameraZoom, cameraBearing, cameraPitch,
+                currentFloorId,
+                selected != null ? selected.getId() : null,
+                routeShown ? source.getId() : null,
+                routeShown ? destination.getId() : null,
+                routeShown ? RouteSummary.of(displayedRoute) : null);
+    }
+
+    private BCLocation findCachedLocation(String locationId) {
+        if (locationId == null || cachedLocations == null) {
+            return null;
+        }
+        for (BCLocation location : cachedLocations) {
+            if (locationId.equals(location.getId())) {
+                return location;
+            }
+        }
+        return null;
+    }
+
     @Override
     protected void onDestroy() {
+        sdkCallbacks.cancel();
+        SearchActivity.setRouteContext(null, null);
+        if (hubRoutePrecomputer != null) {
+            hubRoutePrecomputer.shutdown();
+        }
+        if (routePlayback != null) {
+            routePlayback.stop();
+        }
+        if (viewChangeDispatcher != null) {
+            viewChangeDispatcher.cancel();
+        }
+        if (cameraController != null) {
+            cameraController.cancel();
+        }
+        if (mapCommands != null) {
+            EventLog.log(MAP_COMMANDS, mapCommands.getIssuedCount(), mapCommands.getSavedCount());
+            mapCommands.cancel();
+        }
+        visibleLocationsTracker.shutdown();
         mapView.onDestroy();
         super.onDestroy();
     }
@@ -0,0 +1,31 @@
+package com.beco.demo;
+
+import android.os.Looper;
+
+/**
+ * Thread confinement checks for code that must run on the main thread.
+ *
+ * Debug builds fail fast when a check runs on another thread; release builds skip the check.
+ */
+public final class MainThread {
+
+    private static final boolean CHECK = BuildConfig.DEBUG;
+
+    private MainThread() {
+    }
+
+    public static boolean isCurrent() {
+        return Looper.getMainLooper().isCurrentThread();
+    }
+
+    /**
+     * @param caller What was called, for the failure message
+     * @throws IllegalStateException In debug builds, when called off the main thread
+     */
+    public static void check(String caller) {
+        if (CHECK && !isCurrent()) {
+            throw new IllegalStateException(caller + " must be called on the main thread, not on "
+                    + Thread.currentThread().getName());
+        }
+    }
+}
@@ -18,6 +18,7 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.becomap.sdk.models.BCCategory;
 import com.becomap.sdk.models.BCLocation;
 import com.becomap.sdk.models.BCMapFloor;
+import com.beco.demo.routing.WalkingTimeLoader;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -34,6 +35,8 @@ public class SearchActivity extends AppCompatActivity implements
     private static List<BCLocation> staticLocations;
     private static List<BCCategory> staticCategories;
     private static List<BCMapFloor> staticFloors;
+    private static BCLocation staticRouteOrigin;
+    private static WalkingTimeLoader staticWalkingTimeLoader;
     
     // Views
     private ImageView backButton;
@@ -48,6 +51,7 @@ public class SearchActivity extends AppCompatActivity implements
     private List<BCCategory> allCategories;
     private List<BCMapFloor> allFloors;
     private List<BCLocation> filteredLocations;
+    private WalkingTimeLoader walkingTimeLoader;
     private String selectedCategoryId = null;
     
     // Adapters
@@ -100,7 +104,20 @@ public class SearchActivity extends AppCompatActivity implements
             new LinearLayoutManager(this, LinearLayoutManager.HORIZONTAL, false));
         
         // Setup search results (vertical)
-        searchResultsRecyclerView.setLayoutManager(new LinearLayoutManager(this));
+        LinearLayoutManager resultsLayoutManager = new LinearLayoutManager(this);
+        searchResultsRecyclerView.setLayoutManager(resultsLayoutManager);
+
+        // Serve walking times for the rows on screen first
+        searchResultsRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                if (walkingTimeLoader != null) {
+                    walkingTimeLoader.setVisibleRange(
+                        resultsLayoutManager.findFirstVisibleItemPosition(),
+                        resultsLayoutManager.findLastVisibleItemPosition());
+                }
+            }
+        });
     }
 
     private void setupSearchFunctionality() {
@@ -138,6 +155,17 @@ public class SearchActivity extends AppCompatActivity implements
         staticFloors = floors;
     }
 
+    /**
+     * Sets where walking times in the results are measured from.
+     *
+     * @param origin The current source location, or null to hide walking times
+     * @param loader Loader shared with the caller so times stay cached between searches
+     */
+    public static void setRouteContext(BCLocation origin, WalkingTimeLoader loader) {
+        staticRouteOrigin = origin;
+        staticWalkingTimeLoader = loader;
+    }
+
     private void loadDataFromIntent() {
         Log.d("SearchActivity", "Loading search data...");
 
@@ -146,6 +174,11 @@ public class SearchActivity extends AppCompatActivity implements
         allCategories = staticCategories != null ? staticCategories : new ArrayList<>();
         allFloors = staticFloors != null ? staticFloors : new ArrayList<>();
 
+        if (staticWalkingTimeLoader != null && staticRouteOrigin != null) {
+            walkingTimeLoader = staticWalkingTimeLoader;
+            walkingTimeLoader.setOrigin(staticRouteOrigin);
+        }
+
         Log.d("SearchActivity", "Loaded " + allLocations.size() + " locations, " + allCategories.size() + " categories, and " + allFloors.size() + " floors");
 
         // Initialize filtered locations
@@ -170,6 +203,7 @@ public class SearchActivity extends AppCompatActivity implements
             // Search results adapter
             if (filteredLocations != null && searchResultsRecyclerView != null) {
                 searchResultsAdapter = new SearchResultsAdapter(filteredLocations, allFloors, this);
+                searchResultsAdapter.setWalkingTimeLoader(walkingTimeLoader);
                 searchResultsRecyclerView.setAdapter(searchResultsAdapter);
                 Log.d("SearchActivity", "Search results adapter set up with " + filteredLocations.size() + " locations");
             }
@@ -227,6 +261,18 @@ public class SearchActivity extends AppCompatActivity implements
         return false;
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (walkingTimeLoader != null) {
+            walkingTimeLoader.cancelAll();
+        }
+        if (isFinishing()) {
+            // The loader holds MainActivity's map through its route provider
+            setRouteContext(null, null);
+        }
+    }
+
     @Override
     public void onLocationSelected(BCLocation location) {
         // Return selected location ID to MainActivity (since BCLocation is not Serializable)
@@ -10,6 +10,8 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.becomap.sdk.models.BCLocation;
 import com.becomap.sdk.models.BCMapFloor;
+import com.beco.demo.routing.RouteMetrics;
+import com.beco.demo.routing.WalkingTimeLoader;
 
 import java.util.List;
 
@@ -22,6 +24,7 @@ public class SearchResultsAdapter extends RecyclerView.Adapter<SearchResultsAdap
     private List<BCLocation> locations;
     private List<BCMapFloor> floors;
     private OnLocationSelectedListener listener;
+    private WalkingTimeLoader walkingTimeLoader;
 
     public SearchResultsAdapter(List<BCLocation> locations, List<BCMapFloor> floors, OnLocationSelectedListener listener) {
         this.locations = locations;
@@ -29,6 +32,16 @@ public class SearchResultsAdapter extends RecyclerView.Adapter<SearchResultsAdap
         this.listener = listener;
     }
 
+    /**
+     * Enables the walking time column. Times are loaded only for rows that get bound.
+     *
+     * @param walkingTimeLoader Loader with its origin set, or null to hide the column
+     */
+    public void setWalkingTimeLoader(WalkingTimeLoader walkingTimeLoader) {
+        this.walkingTimeLoader = walkingTimeLoader;
+        notifyDataSetChanged();
+    }
+
     public void updateLocations(List<BCLocation> newLocations) {
         this.locations = newLocations;
         notifyDataSetChanged();
@@ -48,6 +61,13 @@ public class SearchResultsAdapter extends RecyclerView.Adapter<SearchResultsAdap
         holder.bind(location, listener);
     }
 
+    @Override
+    public void onViewRecycled(@NonNull LocationViewHolder holder) {
+        super.onViewRecycled(holder);
+        // Row scrolled away - its walking time is no longer needed
+        holder.unbindWalkingTime();
+    }
+
     @Override
     public int getItemCount() {
         return locations.size();
@@ -57,6 +77,7 @@ public class SearchResultsAdapter extends RecyclerView.Adapter<SearchResultsAdap
         private TextView locationName;
         private TextView locationDescription;
         private TextView locationDistance;
+        private BCLocation walkingTimeLocation;
 
         public LocationViewHolder(@NonNull View itemView) {
             super(itemView);
@@ -81,8 +102,8 @@ public class SearchResultsAdapter extends RecyclerView.Adapter<SearchResultsAdap
                 locationDescription.setVisibility(View.VISIBLE);
             }
 
-            // Hide distance for now (could be calculated later)
-            locationDistance.setVisibility(View.GONE);
+            // Walking time from the current source, loaded lazily
+            bindWalkingTime(location);
 
             // Set click listener
             itemView.setOnClickListener(v -> {
@@ -92,6 +113,46 @@ public class SearchResultsAdapter extends RecyclerView.Adapter<SearchResultsAdap
             });
         }
 
+        private void bindWalkingTime(BCLocation location) {
+            if (walkingTimeLocation != null && walkingTimeLocation != location) {
+                unbindWalkingTime();
+            }
+            WalkingTimeLoader loader = walkingTimeLoader;
+            if (loader == null || loader.getOrigin() == null
+                    || loader.getOrigin().getId().equals(location.getId())) {
+                locationDistance.setVisibility(View.GONE);
+                return;
+            }
+
+            walkingTimeLocation = location;
+            RouteMetrics cached = loader.getCached(location);
+            if (cached != null) {
+                showWalkingTime(cached);
+                return;
+            }
+            locationDistance.setText("…");
+            locationDistance.setVisibility(View.VISIBLE);
+            loader.request(location, getBindingAdapterPosition(), (destination, metrics) -> {
+                if (walkingTimeLocation != null
+                        && destination.getId().equals(walkingTimeLocation.getId())) {
+                    showWalkingTime(metrics);
+                }
+            });
+        }
+
+        void unbindWalkingTime() {
+            if (walkingTimeLocation != null && walkingTimeLoader != null) {
+                walkingTimeLoader.cancel(walkingTimeLocation);
+            }
+            walkingTimeLocation = null;
+        }
+
+        private void showWalkingTime(RouteMetrics metrics) {
+            String text = formatWalkingTime(metrics);
+            locationDistance.setText(text);
+            locationDistance.setVisibility(text != null ? View.VISIBLE : View.GONE);
+        }
+
         private String buildLocationFallbackInfo(BCLocation location) {
             StringBuilder info = new StringBuilder();
 
@@ -131,6 +192,27 @@ public class SearchResultsAdapter extends RecyclerView.Adapter<SearchResultsAdap
         }
     }
 
+    /**
+     * Formats walking metrics for the result row, e.g. "4 min" or "120 m" when no time is known.
+     *
+     * @return The text to show, or null if the location cannot be reached
+     */
+    private static String formatWalkingTime(RouteMetrics metrics) {
+        if (!metrics.isReachable()) {
+            return null;
+        }
+        double seconds = metrics.getDurationSeconds();
+        if (!Double.isNaN(seconds) && !Double.isInfinite(seconds)) {
+            long minutes = Math.round(seconds / 60.0);
+            return minutes < 1 ? "< 1 min" : minutes + " min";
+        }
+        double meters = metrics.getDistanceMeters();
+        if (!Double.isNaN(meters) && !Double.isInfinite(meters)) {
+            return Math.round(meters) + " m";
+        }
+        return null;
+    }
+
     /**
      * Gets the display name for a floor (short name, name, or fallback based on elevation).
      * This matches the logic used in FloorAdapter and MainActivity.
@@ -5,6 +5,8 @@ import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
 import android.view.View;
 import android.view.Window;
 import android.view.WindowManager;
@@ -17,13 +19,29 @@ import android.widget.TextView;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.content.ContextCompat;
 
+import com.beco.demo.startup.MapPreloader;
+import com.beco.demo.startup.StartupTrace;
+
 public class SplashActivity extends AppCompatActivity {
 
-    private static final int SPLASH_DURATION = 2500; // 2.5 seconds
+    private static final String TAG = "SplashActivity";
+    // Shown at least this long for the branding, and never longer than the fixed splash it
+    // replaced - after that the main screen shows its own loader
+    private static final long MIN_SPLASH_DURATION = 800;
+    private static final long MAX_SPLASH_DURATION = 2500;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private long shownAt;
+    private boolean mainOpened;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        StartupTrace.beginSection(StartupTrace.SPLASH_CREATE);
         super.onCreate(savedInstanceState);
+        shownAt = SystemClock.uptimeMillis();
+
+        // Initialise the map while the splash shows; the main screen takes the view over
+        MapPreloader.get().start(this);
 
         // Configure status bar and navigation bar
         configureSystemUI();
@@ -38,15 +56,39 @@ public class SplashActivity extends AppCompatActivity {
         // Initialize animations
         initializeAnimations();
 
-        // Navigate to MainActivity after delay
-        new Handler(Looper.getMainLooper()).postDelayed(() -> {
-            Intent intent = new Intent(SplashActivity.this, MainActivity.class);
-            startActivity(intent);
-            finish();
+        // Navigate to MainActivity once the map is ready, or give up waiting
+        MapPreloader.get().setReadyListener(success -> {
+            long shownFor = SystemClock.uptimeMillis() - shownAt;
+            Log.d(TAG, "Map " + (success ? "ready" : "failed") + " after " + shownFor + " ms of splash");
+            handler.postDelayed(this::openMainActivity, Math.max(0, MIN_SPLASH_DURATION - shownFor));
+        });
+        handler.postDelayed(() -> {
+            Log.w(TAG, "Map not ready after " + MAX_SPLASH_DURATION + " ms, opening anyway");
+            openMainActivity();
+        }, MAX_SPLASH_DURATION);
+        StartupTrace.endSection(StartupTrace.SPLASH_CREATE);
+    }
+
+    @Override
+    protected void onDestroy() {
+        MapPreloader.get().setReadyListener(null);
+        handler.removeCallbacksAndMessages(null);
+        super.onDestroy();
+    }
+
+    private void openMainActivity() {
+        if (mainOpened || isFinishing()) {
+            return;
+        }
+        mainOpened = true;
+        handler.removeCallbacksAndMessages(null);
+
+        Intent intent = new Intent(SplashActivity.this, MainActivity.class);
+        startActivity(intent);
+        finish();
 
-            // Add smooth transition
-            overridePendingTransition(android.R.anim.fade_in, android.R.anim.fade_out);
-        }, SPLASH_DURATION);
+        // Add smooth transition
+        overridePendingTransition(android.R.anim.fade_in, android.R.anim.fade_out);
     }
 
     private void configureSystemUI() {
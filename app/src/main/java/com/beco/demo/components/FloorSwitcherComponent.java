@@ -7,6 +7,7 @@ import android.view.Gravity;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewStub;
 import android.widget.FrameLayout;
 import android.widget.LinearLayout;
 import android.widget.TextView;
@@ -36,6 +37,7 @@ public class FloorSwitcherComponent implements FloorAdapter.OnFloorSelectedListe
     }
 
     private final Context context;
+    private ViewStub stub;
     private LinearLayout floorSelectorContainer;
     private RecyclerView floorRecyclerView;
     private LinearLayout selectedFloorContainer;
@@ -43,6 +45,7 @@ public class FloorSwitcherComponent implements FloorAdapter.OnFloorSelectedListe
 
     private FloorAdapter floorAdapter;
     private List<BCMapFloor> floors;
+    private BCMapFloor selectedFloor;
     private boolean isExpanded = false;
     private FloorSwitcherListener listener;
 
@@ -84,6 +87,18 @@ public class FloorSwitcherComponent implements FloorAdapter.OnFloorSelectedListe
         setupViews();
     }
 
+    /**
+     * Creates a FloorSwitcherComponent that inflates its layout from {@code stub} when it is
+     * first shown. Floors set before then are kept and displayed once inflated.
+     *
+     * @param context The context
+     * @param stub The stub holding the floor switcher's place in the layout
+     */
+    public FloorSwitcherComponent(Context context, ViewStub stub) {
+        this.context = context;
+        this.stub = stub;
+    }
+
     /**
      * Alternative constructor that takes an existing parent view.
      * This is useful when you want to inflate into a specific container.
@@ -106,6 +121,24 @@ public class FloorSwitcherComponent implements FloorAdapter.OnFloorSelectedListe
         setupViews();
     }
 
+    /**
+     * Inflates the layout from the stub if that has not happened yet.
+     */
+    private void ensureInflated() {
+        if (floorSelectorContainer != null) {
+            return;
+        }
+        floorSelectorContainer = (LinearLayout) LazyLayout.inflate(stub, "FloorSwitcherComponent");
+        stub = null;
+        findViews();
+        setupViews();
+        if (floors != null) {
+            floorAdapter = new FloorAdapter(floors, this);
+            floorRecyclerView.setAdapter(floorAdapter);
+        }
+        updateSelectedFloor(selectedFloor);
+    }
+
     /**
      * Finds and initializes all child views from the inflated layout.
      */
@@ -142,7 +175,10 @@ public class FloorSwitcherComponent implements FloorAdapter.OnFloorSelectedListe
      */
     public void setFloors(List<BCMapFloor> floors) {
         this.floors = floors;
-        
+        if (floorSelectorContainer == null) {
+            return; // Set on inflation
+        }
+
         // Create and set adapter
         floorAdapter = new FloorAdapter(floors, this);
         floorRecyclerView.setAdapter(floorAdapter);
@@ -152,6 +188,7 @@ public class FloorSwitcherComponent implements FloorAdapter.OnFloorSelectedListe
      * Shows the floor switcher with animation.
      */
     public void show() {
+        ensureInflated();
         if (floorSelectorContainer != null) {
             floorSelectorContainer.setVisibility(View.VISIBLE);
             // Fade in animation
@@ -200,6 +237,9 @@ public class FloorSwitcherComponent implements FloorAdapter.OnFloorSelectedListe
      * @param floor The floor to display as selected
      */
     public void updateSelectedFloor(BCMapFloor floor) {
+        if (floor != null) {
+            selectedFloor = floor;
+        }
         if (floor != null && selectedFloorText != null) {
             // Display floor short name, name, or fallback
             String displayText = floor.getShortName();
@@ -220,6 +260,7 @@ public class FloorSwitcherComponent implements FloorAdapter.OnFloorSelectedListe
      * @return The root LinearLayout of the floor switcher
      */
     public LinearLayout getView() {
+        ensureInflated();
         return floorSelectorContainer;
     }
 
@@ -0,0 +1,34 @@
+package com.beco.demo.components;
+
+import android.view.View;
+import android.view.ViewStub;
+
+import com.beco.demo.logging.EventLog;
+import com.beco.demo.logging.LogEvent;
+
+/**
+ * Inflates component layouts from the {@link ViewStub}s that hold their place in the screen.
+ *
+ * A stub costs next to nothing until it is inflated, so components built on one only pay for
+ * their views when they are first shown, not while the screen starts.
+ */
+final class LazyLayout {
+
+    private static final String TAG = "LazyLayout";
+    private static final LogEvent INFLATED = LogEvent.debug(TAG, "Inflated %s in %d us");
+
+    private LazyLayout() {
+    }
+
+    /**
+     * Replaces {@code stub} with its layout. The stub's layout parameters apply to the layout.
+     *
+     * @param component Name of the component, for the log
+     */
+    static View inflate(ViewStub stub, String component) {
+        long start = System.nanoTime();
+        View view = stub.inflate();
+        EventLog.log(INFLATED, component, (System.nanoTime() - start) / 1000);
+        return view;
+    }
+}
@@ -6,6 +6,7 @@ import android.view.Gravity;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewStub;
 import android.widget.Button;
 import android.widget.FrameLayout;
 import android.widget.ImageView;
@@ -31,6 +32,12 @@ public class LocationDetailsCard {
          */
         void onNavigateToLocation(BCLocation location);
 
+        /**
+         * Called when the user adds the location as a stop of a multi-stop trip.
+         * @param location The location to add
+         */
+        void onAddStop(BCLocation location);
+
         /**
          * Called when the card is dismissed (close or cancel).
          */
@@ -38,11 +45,13 @@ public class LocationDetailsCard {
     }
 
     private final Context context;
+    private ViewStub stub;
     private LinearLayout cardView;
     private TextView locationNameText;
     private TextView locationDescriptionText;
     private ImageView closeButton;
     private Button cancelButton;
+    private Button addStopButton;
     private Button navigateButton;
 
     private BCLocation currentLocation;
@@ -79,6 +88,18 @@ public class LocationDetailsCard {
         setupClickListeners();
     }
 
+    /**
+     * Creates a LocationDetailsCard that inflates its layout from {@code stub} when a location is
+     * first shown.
+     *
+     * @param context The context
+     * @param stub The stub holding the card's place in the layout
+     */
+    public LocationDetailsCard(Context context, ViewStub stub) {
+        this.context = context;
+        this.stub = stub;
+    }
+
     /**
      * Alternative constructor that takes an existing parent view.
      * This is useful when you want to inflate into a specific container.
@@ -101,6 +122,19 @@ public class LocationDetailsCard {
         setupClickListeners();
     }
 
+    /**
+     * Inflates the layout from the stub if that has not happened yet.
+     */
+    private void ensureInflated() {
+        if (cardView != null) {
+            return;
+        }
+        cardView = (LinearLayout) LazyLayout.inflate(stub, "LocationDetailsCard");
+        stub = null;
+        findViews();
+        setupClickListeners();
+    }
+
     /**
      * Finds and initializes all child views from the inflated layout.
      */
@@ -109,6 +143,7 @@ public class LocationDetailsCard {
         locationDescriptionText = cardView.findViewById(R.id.locationDescriptionText);
         closeButton = cardView.findViewById(R.id.closeButton);
         cancelButton = cardView.findViewById(R.id.cancelButton);
+        addStopButton = cardView.findViewById(R.id.addStopButton);
         navigateButton = cardView.findViewById(R.id.navigateButton);
     }
 
@@ -133,6 +168,7 @@ public class LocationDetailsCard {
         }
 
         this.currentLocation = location;
+        ensureInflated();
 
         // Set location name
         locationNameText.setText(location.getName());
@@ -149,6 +185,9 @@ public class LocationDetailsCard {
      * Dismisses the card with animation.
      */
     public void dismiss() {
+        if (cardView == null) {
+            return; // Never shown
+        }
         hideCardWithAnimation();
     }
 
@@ -158,7 +197,7 @@ public class LocationDetailsCard {
      * @return true if the card is visible, false otherwise
      */
     public boolean isVisible() {
-        return cardView.getVisibility() == View.VISIBLE;
+        return cardView != null && cardView.getVisibility() == View.VISIBLE;
     }
 
     /**
@@ -177,6 +216,7 @@ public class LocationDetailsCard {
      * @return The root LinearLayout of the card
      */
     public LinearLayout getView() {
+        ensureInflated();
         return cardView;
     }
 
@@ -187,6 +227,9 @@ public class LocationDetailsCard {
         // Cancel button click listener
         cancelButton.setOnClickListener(v -> handleDismiss());
 
+        // Add stop button click listener
+        addStopButton.setOnClickListener(v -> handleAddStop());
+
         // Navigate button click listener
         navigateButton.setOnClickListener(v -> handleNavigate());
     }
@@ -211,6 +254,14 @@ public class LocationDetailsCard {
         }
     }
 
+    private void handleAddStop() {
+        if (currentLocation != null && listener != null) {
+            listener.onAddStop(currentLocation);
+            // Dismiss the card so the user can pick the next stop
+            dismiss();
+        }
+    }
+
     private String buildLocationDescription(BCLocation location) {
         // Use description if available
         String description = location.getDescription();
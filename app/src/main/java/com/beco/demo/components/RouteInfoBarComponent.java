@@ -2,10 +2,11 @@ package com.beco.demo.components;
 
 import android.content.Context;
 import android.graphics.drawable.GradientDrawable;
-import android.util.Log;
+import android.view.Choreographer;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewStub;
 import android.widget.ImageView;
 import android.widget.LinearLayout;
 import android.widget.TextView;
@@ -16,9 +17,18 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.becomap.sdk.models.BCMapFloor;
 import com.becomap.sdk.models.BCRoute;
 import com.beco.demo.R;
+import com.beco.demo.logging.EventLog;
+import com.beco.demo.logging.LogEvent;
+import com.beco.demo.routing.FloorSegment;
+import com.beco.demo.routing.FloorSegmentCalculator;
+import com.beco.demo.routing.RouteProgress;
+import com.beco.demo.routing.RouteSummary;
 
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Component for displaying route information in a bottom bar.
@@ -27,17 +37,43 @@ import java.util.List;
 public class RouteInfoBarComponent {
 
     private static final String TAG = "RouteInfoBarComponent";
-
-    // Track the currently selected floor for visual state
+    private static final LogEvent FLOOR_SELECTED = LogEvent.debug(TAG, "Selected floor set to: %s");
+    private static final LogEvent SEGMENT_SELECTED = LogEvent.debug(TAG, "Selected segment set to: %d");
+    private static final LogEvent ROUTE_SHOWN = LogEvent.debug(TAG, "Route info displayed for destination: %s");
+    private static final LogEvent FLOORS_SHOWN = LogEvent.debug(TAG, "Showing %d involved floors");
+    private static final LogEvent FLOORS_HIDDEN = LogEvent.debug(TAG, "Single floor route - hiding floors section");
+    private static final LogEvent FLOOR_CLICKED = LogEvent.debug(TAG, "Floor clicked: %s");
+
+    // Track the currently selected chip for visual state: by segment index once the route is broken
+    // down (a route may cross a floor more than once), by floor ID before that
     private String selectedFloorId = null;
+    private int selectedSegmentIndex = -1;
 
     public interface RouteInfoBarListener {
         void onFloorSelected(String floorId, String floorName);
         void onRouteInfoClosed();
+
+        /**
+         * Called after {@link #onFloorSelected} when the tapped chip is a route segment.
+         *
+         * @param floor The segment's floor, or null if it is not among the floors passed to
+         *              {@link #setFloors}
+         * @param segment The tapped segment
+         */
+        default void onSegmentSelected(BCMapFloor floor, FloorSegment segment) {
+        }
+
+        /**
+         * Called when the user picks another route alternative.
+         *
+         * @param index Index into the labels passed to {@link #setAlternatives}
+         */
+        default void onAlternativeSelected(int index) {
+        }
     }
 
     private final Context context;
-    private final ViewGroup parentContainer;
+    private ViewStub stub;
     private RouteInfoBarListener listener;
 
     // Views
@@ -45,32 +81,72 @@ public class RouteInfoBarComponent {
     private TextView destinationText;
     private TextView distanceText;
     private TextView estimatedTimeText;
+    private LinearLayout alternativesSection;
+    private LinearLayout alternativesContainer;
     private LinearLayout involvedFloorsSection;
     private RecyclerView floorsRecyclerView;
+    private TextView segmentDetailText;
     private ImageView closeButton;
 
     // Data
     private BCRoute currentRoute;
     private FloorsAdapter floorsAdapter;
-    private List<BCMapFloor> availableFloors;
+    private final Map<String, BCMapFloor> floorsById = new HashMap<>();
+    private final Map<String, String> floorLabels = new HashMap<>();
+    private FloorSegmentCalculator segmentCalculator;
+    private int selectedAlternativeIndex;
+
+    // Progress updates are applied once per frame, whatever the rate of position fixes
+    private RouteProgress pendingProgress;
+    private boolean progressFramePosted;
+    private final Choreographer.FrameCallback progressFrameCallback = frameTimeNanos -> applyProgress();
 
     public RouteInfoBarComponent(Context context, ViewGroup parentContainer) {
         this.context = context;
-        this.parentContainer = parentContainer;
-        initializeComponent();
+        initializeComponent(parentContainer);
     }
 
-    private void initializeComponent() {
+    /**
+     * Creates the bar on a stub holding its place in the layout. The layout is inflated when a
+     * route is first shown; floors and calculators set before then are kept.
+     */
+    public RouteInfoBarComponent(Context context, ViewStub stub) {
+        this.context = context;
+        this.stub = stub;
+    }
+
+    private void initializeComponent(ViewGroup parentContainer) {
         // Inflate the route info bar layout
         LayoutInflater inflater = LayoutInflater.from(context);
         routeInfoContainer = (LinearLayout) inflater.inflate(R.layout.component_route_info_bar, parentContainer, false);
+        initializeViews();
+
+        // Add to parent container
+        parentContainer.addView(routeInfoContainer);
+    }
+
+    /**
+     * Inflates the layout from the stub if that has not happened yet.
+     */
+    private void ensureInflated() {
+        if (routeInfoContainer != null) {
+            return;
+        }
+        routeInfoContainer = (LinearLayout) LazyLayout.inflate(stub, TAG);
+        stub = null;
+        initializeViews();
+    }
 
+    private void initializeViews() {
         // Initialize views
         destinationText = routeInfoContainer.findViewById(R.id.destinationText);
         distanceText = routeInfoContainer.findViewById(R.id.distanceText);
         estimatedTimeText = routeInfoContainer.findViewById(R.id.estimatedTimeText);
+        alternativesSection = routeInfoContainer.findViewById(R.id.alternativesSection);
+        alternativesContainer = routeInfoContainer.findViewById(R.id.alternativesContainer);
         involvedFloorsSection = routeInfoContainer.findViewById(R.id.involvedFloorsSection);
         floorsRecyclerView = routeInfoContainer.findViewById(R.id.floorsRecyclerView);
+        segmentDetailText = routeInfoContainer.findViewById(R.id.segmentDetailText);
         closeButton = routeInfoContainer.findViewById(R.id.closeButton);
 
         // Setup RecyclerView
@@ -78,9 +154,6 @@ public class RouteInfoBarComponent {
 
         // Setup close button
         setupCloseButton();
-
-        // Add to parent container
-        parentContainer.addView(routeInfoContainer);
     }
 
     private void setupFloorsRecyclerView() {
@@ -105,7 +178,22 @@ public class RouteInfoBarComponent {
     }
 
     public void setFloors(List<BCMapFloor> floors) {
-        this.availableFloors = floors;
+        // Resolve floor labels once instead of on every chip bind
+        floorsById.clear();
+        floorLabels.clear();
+        if (floors != null) {
+            for (BCMapFloor floor : floors) {
+                floorsById.put(floor.getId(), floor);
+                floorLabels.put(floor.getId(), resolveFloorDisplayName(floor));
+            }
+        }
+    }
+
+    /**
+     * Sets the calculator that breaks multi-floor routes down into per-floor segments.
+     */
+    public void setFloorSegmentCalculator(FloorSegmentCalculator segmentCalculator) {
+        this.segmentCalculator = segmentCalculator;
     }
 
     /**
@@ -114,70 +202,218 @@ public class RouteInfoBarComponent {
      */
     public void setSelectedFloor(String floorId) {
         this.selectedFloorId = floorId;
+        this.selectedSegmentIndex = -1;
         if (floorsAdapter != null) {
             floorsAdapter.notifyDataSetChanged();
         }
-        Log.d(TAG, "Selected floor set to: " + floorId);
+        EventLog.log(FLOOR_SELECTED, floorId);
+    }
+
+    /**
+     * Highlights the chip of a route segment.
+     *
+     * @param segmentIndex The segment's index, see {@link FloorSegment#getIndex()}
+     */
+    public void setSelectedSegment(int segmentIndex) {
+        this.selectedSegmentIndex = segmentIndex;
+        this.selectedFloorId = null;
+        if (floorsAdapter != null) {
+            floorsAdapter.notifyDataSetChanged();
+        }
+        EventLog.log(SEGMENT_SELECTED, segmentIndex);
     }
 
     public void showRoute(BCRoute route, String destinationName) {
         this.currentRoute = route;
-        
+        cancelProgress();
+        showDetails(route.getFormattedDistance(), route.getFormattedTime(),
+                route.isMultiFloor(), route.getInvolvedFloors(), destinationName);
+
+        // Replace the plain floor chips with per-floor segments
+        if (route.isMultiFloor() && segmentCalculator != null) {
+            List<FloorSegment> segments = segmentCalculator.calculate(route);
+            if (!segments.isEmpty()) {
+                floorsAdapter.setSegments(segments);
+            }
+        }
+    }
+
+    /**
+     * Shows stored route details while the route itself is still being calculated.
+     */
+    public void showRouteSummary(RouteSummary summary, String destinationName) {
+        this.currentRoute = null;
+        cancelProgress();
+        showDetails(summary.getFormattedDistance(), summary.getFormattedTime(),
+                summary.isMultiFloor(), summary.getInvolvedFloors(), destinationName);
+    }
+
+    private void showDetails(String distance, String estimatedTime, boolean multiFloor,
+                             List<String> involvedFloors, String destinationName) {
+        ensureInflated();
+
         // Update destination
         destinationText.setText(destinationName != null ? destinationName : "Unknown Destination");
         
         // Update distance
-        String distance = route.getFormattedDistance();
         distanceText.setText(distance != null ? distance : "--");
         
         // Update estimated time
-        String estimatedTime = route.getFormattedTime();
         estimatedTimeText.setText(estimatedTime != null ? estimatedTime : "--");
         
         // Update involved floors
-        updateInvolvedFloors(route);
+        updateInvolvedFloors(multiFloor, involvedFloors);
         
         // Show the component
         show();
         
-        Log.d(TAG, "Route info displayed for destination: " + destinationName);
+        EventLog.log(ROUTE_SHOWN, destinationName);
     }
 
-    private void updateInvolvedFloors(BCRoute route) {
-        if (route.isMultiFloor()) {
-            List<String> involvedFloors = route.getInvolvedFloors();
+    private void updateInvolvedFloors(boolean multiFloor, List<String> involvedFloors) {
+        segmentDetailText.setVisibility(View.GONE);
+        if (multiFloor) {
             if (involvedFloors != null && !involvedFloors.isEmpty()) {
                 floorsAdapter.setFloors(involvedFloors);
                 involvedFloorsSection.setVisibility(View.VISIBLE);
-                Log.d(TAG, "Showing " + involvedFloors.size() + " involved floors");
+                EventLog.log(FLOORS_SHOWN, involvedFloors.size());
             } else {
                 involvedFloorsSection.setVisibility(View.GONE);
             }
         } else {
             involvedFloorsSection.setVisibility(View.GONE);
-            Log.d(TAG, "Single floor route - hiding floors section");
+            EventLog.log(FLOORS_HIDDEN);
+        }
+    }
+
+    /**
+     * Shows the route alternatives as chips. Hidden when there is only one.
+     *
+     * @param labels Chip labels in display order
+     * @param selectedIndex The alternative currently shown
+     */
+    public void setAlternatives(List<String> labels, int selectedIndex) {
+        selectedAlternativeIndex = selectedIndex;
+        if (routeInfoContainer == null && (labels == null || labels.size() < 2)) {
+            return; // Nothing to clear yet
+        }
+        ensureInflated();
+        alternativesContainer.removeAllViews();
+        if (labels == null || labels.size() < 2) {
+            alternativesSection.setVisibility(View.GONE);
+            return;
+        }
+
+        LayoutInflater inflater = LayoutInflater.from(context);
+        for (int i = 0; i < labels.size(); i++) {
+            final int index = i;
+            TextView chip = (TextView) inflater.inflate(R.layout.item_route_alternative, alternativesContainer, false);
+            chip.setText(labels.get(i));
+            chip.setOnClickListener(v -> {
+                if (index == selectedAlternativeIndex) {
+                    return;
+                }
+                selectedAlternativeIndex = index;
+                updateAlternativeSelection();
+                if (listener != null) {
+                    listener.onAlternativeSelected(index);
+                }
+            });
+            alternativesContainer.addView(chip);
+        }
+        updateAlternativeSelection();
+        alternativesSection.setVisibility(View.VISIBLE);
+    }
+
+    public void clearAlternatives() {
+        setAlternatives(null, 0);
+    }
+
+    private void updateAlternativeSelection() {
+        for (int i = 0; i < alternativesContainer.getChildCount(); i++) {
+            TextView chip = (TextView) alternativesContainer.getChildAt(i);
+            boolean isSelected = i == selectedAlternativeIndex;
+            chip.setSelected(isSelected);
+            chip.setTextColor(context.getColor(isSelected ? android.R.color.white : R.color.text_secondary));
         }
     }
 
     public void show() {
+        ensureInflated();
         routeInfoContainer.setVisibility(View.VISIBLE);
     }
 
     public void hide() {
-        routeInfoContainer.setVisibility(View.GONE);
+        cancelProgress();
+        if (routeInfoContainer != null) {
+            routeInfoContainer.setVisibility(View.GONE);
+        }
+    }
+
+    /**
+     * Shows the remaining distance and time while the route is walked. Can be called for every
+     * position fix; the text is updated at most once per frame, with the latest progress.
+     */
+    public void updateProgress(RouteProgress progress) {
+        pendingProgress = progress;
+        if (!progressFramePosted) {
+            progressFramePosted = true;
+            Choreographer.getInstance().postFrameCallback(progressFrameCallback);
+        }
+    }
+
+    private void applyProgress() {
+        progressFramePosted = false;
+        RouteProgress progress = pendingProgress;
+        pendingProgress = null;
+        if (progress == null || routeInfoContainer == null) {
+            return;
+        }
+        String distance = progress.getFormattedRemainingDistance();
+        String time = progress.getFormattedRemainingTime();
+        if (distance != null) {
+            distanceText.setText(distance);
+        }
+        if (time != null) {
+            estimatedTimeText.setText(time);
+        }
+    }
+
+    private void cancelProgress() {
+        pendingProgress = null;
+        if (progressFramePosted) {
+            progressFramePosted = false;
+            Choreographer.getInstance().removeFrameCallback(progressFrameCallback);
+        }
     }
 
     public boolean isVisible() {
-        return routeInfoContainer.getVisibility() == View.VISIBLE;
+        return routeInfoContainer != null && routeInfoContainer.getVisibility() == View.VISIBLE;
     }
 
     // RecyclerView Adapter for floors
     private class FloorsAdapter extends RecyclerView.Adapter<FloorsAdapter.FloorViewHolder> {
 
         private List<String> floorIds;
+        private List<FloorSegment> segments;
 
         public void setFloors(List<String> floorIds) {
             this.floorIds = floorIds;
+            this.segments = null;
+            selectedSegmentIndex = -1; // Segment indices belong to the previous route
+            notifyDataSetChanged();
+        }
+
+        /**
+         * Shows one chip per floor segment, in walking order.
+         */
+        public void setSegments(List<FloorSegment> segments) {
+            List<String> ids = new ArrayList<>(segments.size());
+            for (FloorSegment segment : segments) {
+                ids.add(segment.getFloorId());
+            }
+            this.floorIds = ids;
+            this.segments = segments;
             notifyDataSetChanged();
         }
 
@@ -190,7 +426,7 @@ public class RouteInfoBarComponent {
         @Override
         public void onBindViewHolder(FloorViewHolder holder, int position) {
             String floorId = floorIds.get(position);
-            holder.bind(floorId);
+            holder.bind(floorId, segments != null ? segments.get(position) : null);
         }
 
         @Override
@@ -200,35 +436,54 @@ public class RouteInfoBarComponent {
 
         class FloorViewHolder extends RecyclerView.ViewHolder {
             private TextView floorNameText;
+            private TextView floorSegmentText;
 
             public FloorViewHolder(View itemView) {
                 super(itemView);
                 floorNameText = itemView.findViewById(R.id.floorNameText);
+                floorSegmentText = itemView.findViewById(R.id.floorSegmentText);
                 
                 itemView.setOnClickListener(v -> {
                     int position = getAdapterPosition();
                     if (position != RecyclerView.NO_POSITION && floorIds != null) {
                         String floorId = floorIds.get(position);
                         String floorName = getFloorDisplayName(floorId);
-                        Log.d(TAG, "Floor clicked: " + floorName + " (ID: " + floorId + ")");
+                        FloorSegment segment = segments != null ? segments.get(position) : null;
+                        EventLog.log(FLOOR_CLICKED, floorId);
 
-                        // Update selected floor and refresh adapter
-                        selectedFloorId = floorId;
+                        // Update selected chip and refresh adapter
+                        if (segment != null) {
+                            selectedSegmentIndex = segment.getIndex();
+                            selectedFloorId = null;
+                        } else {
+                            selectedFloorId = floorId;
+                            selectedSegmentIndex = -1;
+                        }
                         notifyDataSetChanged();
+                        showSegmentDetail(segment);
 
                         if (listener != null) {
                             listener.onFloorSelected(floorId, floorName);
+                            if (segment != null) {
+                                listener.onSegmentSelected(floorsById.get(floorId), segment);
+                            }
                         }
                     }
                 });
             }
 
-            public void bind(String floorId) {
+            public void bind(String floorId, FloorSegment segment) {
                 String displayName = getFloorDisplayName(floorId);
                 floorNameText.setText(displayName);
 
+                String summary = segment != null ? segment.getSummary() : "";
+                floorSegmentText.setText(summary);
+                floorSegmentText.setVisibility(summary.isEmpty() ? View.GONE : View.VISIBLE);
+
                 // Apply styling based on selection state
-                boolean isSelected = floorId.equals(selectedFloorId);
+                boolean isSelected = segment != null
+                        ? segment.getIndex() == selectedSegmentIndex
+                        : floorId.equals(selectedFloorId);
 
                 if (isSelected) {
                     // Selected floor: full green background with white text
@@ -239,40 +494,59 @@ public class RouteInfoBarComponent {
                     floorNameText.setBackgroundResource(R.drawable.circular_floor_background);
                     floorNameText.setTextColor(context.getResources().getColor(R.color.becomap_primary, null));
                 }
+            }
+        }
+    }
 
-                Log.d(TAG, "Floor " + displayName + " bound - Selected: " + isSelected);
+    /**
+     * Shows which floors the route comes from and goes on to around the tapped floor.
+     */
+    private void showSegmentDetail(FloorSegment segment) {
+        if (segment == null
+                || (segment.getPreviousFloorId() == null && segment.getNextFloorId() == null)) {
+            segmentDetailText.setVisibility(View.GONE);
+            return;
+        }
+        StringBuilder detail = new StringBuilder();
+        if (segment.getPreviousFloorId() != null) {
+            detail.append("Arrive from ").append(getFloorDisplayName(segment.getPreviousFloorId()));
+        }
+        if (segment.getNextFloorId() != null) {
+            if (detail.length() > 0) {
+                detail.append('\n');
             }
+            detail.append("Continue to ").append(getFloorDisplayName(segment.getNextFloorId()));
         }
+        segmentDetailText.setText(detail.toString());
+        segmentDetailText.setVisibility(View.VISIBLE);
     }
 
     private String getFloorDisplayName(String floorId) {
-        if (availableFloors != null) {
-            for (BCMapFloor floor : availableFloors) {
-                if (floor.getId().equals(floorId)) {
-                    // Use short name if available, otherwise fall back to name or ID
-                    String displayText = floor.getShortName();
-                    if (displayText == null || displayText.trim().isEmpty()) {
-                        displayText = floor.getName();
-                    }
-                    if (displayText == null || displayText.trim().isEmpty()) {
-                        // Use elevation as fallback - similar to FloorAdapter logic
-                        Double elevation = floor.getElevation();
-                        if (elevation != null) {
-                            if (elevation == 0.0) {
-                                displayText = "GF"; // Ground Floor
-                            } else if (elevation > 0) {
-                                displayText = "F" + Math.round(elevation);
-                            } else {
-                                displayText = "B" + Math.round(Math.abs(elevation));
-                            }
-                        } else {
-                            displayText = floorId; // Fallback to ID
-                        }
-                    }
-                    return displayText;
+        String label = floorLabels.get(floorId);
+        return label != null ? label : floorId; // Fallback to ID if floor not found
+    }
+
+    private static String resolveFloorDisplayName(BCMapFloor floor) {
+        // Use short name if available, otherwise fall back to name or ID
+        String displayText = floor.getShortName();
+        if (displayText == null || displayText.trim().isEmpty()) {
+            displayText = floor.getName();
+        }
+        if (displayText == null || displayText.trim().isEmpty()) {
+            // Use elevation as fallback - similar to FloorAdapter logic
+            Double elevation = floor.getElevation();
+            if (elevation != null) {
+                if (elevation == 0.0) {
+                    displayText = "GF"; // Ground Floor
+                } else if (elevation > 0) {
+                    displayText = "F" + Math.round(elevation);
+                } else {
+                    displayText = "B" + Math.round(Math.abs(elevation));
                 }
+            } else {
+                displayText = floor.getId(); // Fallback to ID
             }
         }
-        return floorId; // Fallback to ID if floor not found
+        return displayText;
     }
 }
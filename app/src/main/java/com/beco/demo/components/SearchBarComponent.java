@@ -7,6 +7,7 @@ import android.view.Gravity;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewStub;
 import android.widget.EditText;
 import android.widget.FrameLayout;
 import android.widget.ImageView;
@@ -51,6 +52,8 @@ public class SearchBarComponent {
     }
 
     private final Context context;
+    private ViewStub searchStub;
+    private ViewStub routingStub;
     private LinearLayout searchContainer;
     private FrameLayout routingContainer;
     private EditText searchEditText;
@@ -107,10 +110,26 @@ public class SearchBarComponent {
         routingContainer.setVisibility(View.GONE);
         
         // Find all child views
-        findViews();
+        findSearchViews();
+        findRoutingViews();
         
         // Setup click listeners
-        setupClickListeners();
+        setupSearchClickListeners();
+        setupRoutingClickListeners();
+    }
+
+    /**
+     * Creates a SearchBarComponent on stubs holding the places of its two layouts. Each layout is
+     * inflated when its mode is first shown; call {@link #inflate()} when the bar comes into view.
+     *
+     * @param context The context
+     * @param searchStub The stub for the search mode layout
+     * @param routingStub The stub for the routing mode layout
+     */
+    public SearchBarComponent(Context context, ViewStub searchStub, ViewStub routingStub) {
+        this.context = context;
+        this.searchStub = searchStub;
+        this.routingStub = routingStub;
     }
 
     /**
@@ -129,22 +148,57 @@ public class SearchBarComponent {
         this.searchContainer = (LinearLayout) inflater.inflate(R.layout.component_search_bar, parentContainer, attachToParent);
         
         // Find all child views
-        findViews();
+        findSearchViews();
         
         // Setup click listeners
-        setupClickListeners();
+        setupSearchClickListeners();
     }
 
     /**
-     * Finds and initializes all child views from the inflated layouts.
+     * Inflates the layout of the current mode if that has not happened yet.
+     * Call when the bar is about to come into view.
      */
-    private void findViews() {
-        // Search mode views
+    public void inflate() {
+        if (isRoutingMode) {
+            ensureRoutingInflated();
+        } else {
+            ensureSearchInflated();
+        }
+    }
+
+    private void ensureSearchInflated() {
+        if (searchContainer != null) {
+            return;
+        }
+        searchContainer = (LinearLayout) LazyLayout.inflate(searchStub, "SearchBarComponent");
+        searchStub = null;
+        findSearchViews();
+        setupSearchClickListeners();
+    }
+
+    private void ensureRoutingInflated() {
+        if (routingContainer != null) {
+            return;
+        }
+        routingContainer = (FrameLayout) LazyLayout.inflate(routingStub, "SearchBarComponent routing");
+        routingStub = null;
+        findRoutingViews();
+        setupRoutingClickListeners();
+    }
+
+    /**
+     * Finds the search mode views in the inflated layout.
+     */
+    private void findSearchViews() {
         searchEditText = searchContainer.findViewById(R.id.searchEditText);
         searchIcon = searchContainer.findViewById(R.id.searchIcon);
         speechIcon = searchContainer.findViewById(R.id.speechIcon);
+    }
 
-        // Routing mode views
+    /**
+     * Finds the routing mode views in the inflated layout.
+     */
+    private void findRoutingViews() {
         fromLocationContainer = routingContainer.findViewById(R.id.fromLocationContainer);
         toLocationContainer = routingContainer.findViewById(R.id.toLocationContainer);
         fromLocationText = routingContainer.findViewById(R.id.fromLocationText);
@@ -209,6 +263,7 @@ public class SearchBarComponent {
      * @param text The text to set
      */
     public void setText(String text) {
+        ensureSearchInflated();
         if (searchEditText != null) {
             searchEditText.setText(text);
         }
@@ -239,8 +294,7 @@ public class SearchBarComponent {
         }
 
         // Switch to search mode
-        searchContainer.setVisibility(View.VISIBLE);
-        routingContainer.setVisibility(View.GONE);
+        showSearchMode();
     }
 
     /**
@@ -286,6 +340,7 @@ public class SearchBarComponent {
      * @return The root LinearLayout of the search bar
      */
     public LinearLayout getView() {
+        ensureSearchInflated();
         return searchContainer;
     }
 
@@ -295,10 +350,11 @@ public class SearchBarComponent {
      * @return The EditText view
      */
     public EditText getEditText() {
+        ensureSearchInflated();
         return searchEditText;
     }
 
-    private void setupClickListeners() {
+    private void setupSearchClickListeners() {
         // Search EditText click listener - launch search activity
         searchEditText.setOnClickListener(v -> handleSearchRequest());
 
@@ -314,8 +370,9 @@ public class SearchBarComponent {
 
         // Speech icon click listener - handle voice search
         speechIcon.setOnClickListener(v -> handleSpeechRequest());
+    }
 
-        // Routing mode click listeners
+    private void setupRoutingClickListeners() {
         fromLocationContainer.setOnClickListener(v -> handleSourceLocationRequest());
         toLocationContainer.setOnClickListener(v -> handleDestinationLocationRequest());
         swapLocationsButton.setOnClickListener(v -> handleSwapLocations());
@@ -381,16 +438,26 @@ public class SearchBarComponent {
 
             if (isRoutingMode) {
                 // Switch to routing mode
-                searchContainer.setVisibility(View.GONE);
+                ensureRoutingInflated();
+                if (searchContainer != null) {
+                    searchContainer.setVisibility(View.GONE);
+                }
                 routingContainer.setVisibility(View.VISIBLE);
             } else {
                 // Switch to search mode
-                searchContainer.setVisibility(View.VISIBLE);
-                routingContainer.setVisibility(View.GONE);
+                showSearchMode();
             }
         }
     }
 
+    private void showSearchMode() {
+        ensureSearchInflated();
+        searchContainer.setVisibility(View.VISIBLE);
+        if (routingContainer != null) {
+            routingContainer.setVisibility(View.GONE);
+        }
+    }
+
     /**
      * Updates the routing display with current location names.
      */
@@ -414,7 +481,8 @@ public class SearchBarComponent {
      * Updates the search display with destination location.
      */
     private void updateSearchDisplay() {
-        if (!isRoutingMode && destinationLocation != null && searchEditText != null) {
+        if (!isRoutingMode && destinationLocation != null) {
+            ensureSearchInflated();
             String displayText = getLocationDisplayText(destinationLocation);
             searchEditText.setText(displayText);
         }
@@ -0,0 +1,198 @@
+package com.beco.demo.components;
+
+import android.content.Context;
+import android.util.TypedValue;
+import android.view.Gravity;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.becomap.sdk.models.BCLocation;
+import com.beco.demo.R;
+import com.beco.demo.map.VisibleLocationsTracker;
+
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Component listing the locations on the floor shown on the map.
+ * Collapsed to a header with the count; tapping it shows the list. The list is updated with the
+ * changes reported by a {@link VisibleLocationsTracker}, item by item.
+ */
+public class VisibleLocationsPanel implements VisibleLocationsTracker.Listener {
+
+    public interface VisibleLocationsListener {
+        /**
+         * Called when a location in the list is tapped.
+         */
+        void onVisibleLocationSelected(BCLocation location);
+    }
+
+    private final Context context;
+    private LinearLayout container;
+    private TextView headerText;
+    private RecyclerView recyclerView;
+
+    private final LocationsAdapter adapter = new LocationsAdapter();
+    private VisibleLocationsListener listener;
+    private boolean isExpanded = false;
+
+    public VisibleLocationsPanel(Context context, ViewGroup parentContainer) {
+        this.context = context;
+
+        LayoutInflater inflater = LayoutInflater.from(context);
+        container = (LinearLayout) inflater.inflate(R.layout.component_visible_locations, parentContainer, false);
+
+        // Top-right, below the search bar
+        if (parentContainer instanceof FrameLayout) {
+            FrameLayout.LayoutParams params = new FrameLayout.LayoutParams(
+                FrameLayout.LayoutParams.WRAP_CONTENT,
+                FrameLayout.LayoutParams.WRAP_CONTENT
+            );
+            params.gravity = Gravity.TOP | Gravity.END;
+            params.setMargins(0, dpToPx(88), dpToPx(16), 0);
+            container.setLayoutParams(params);
+        }
+        parentContainer.addView(container);
+
+        headerText = container.findViewById(R.id.visibleLocationsHeader);
+        recyclerView = container.findViewById(R.id.visibleLocationsRecyclerView);
+        recyclerView.setLayoutManager(new LinearLayoutManager(context));
+        recyclerView.setAdapter(adapter);
+
+        headerText.setOnClickListener(v -> setExpanded(!isExpanded));
+        updateHeader();
+    }
+
+    public void setListener(VisibleLocationsListener listener) {
+        this.listener = listener;
+    }
+
+    public void show() {
+        container.setVisibility(View.VISIBLE);
+    }
+
+    /**
+     * Hides the panel and empties the list.
+     */
+    public void hide() {
+        container.setVisibility(View.GONE);
+        adapter.clear();
+        updateHeader();
+    }
+
+    public boolean isVisible() {
+        return container.getVisibility() == View.VISIBLE;
+    }
+
+    @Override
+    public void onVisibleLocationsChanged(List<BCLocation> added, List<BCLocation> removed) {
+        for (BCLocation location : removed) {
+            adapter.remove(location);
+        }
+        for (BCLocation location : added) {
+            adapter.add(location);
+        }
+        updateHeader();
+    }
+
+    private void setExpanded(boolean expanded) {
+        isExpanded = expanded;
+        recyclerView.setVisibility(expanded ? View.VISIBLE : View.GONE);
+    }
+
+    private void updateHeader() {
+        headerText.setText("On this floor: " + adapter.getItemCount());
+    }
+
+    private int dpToPx(int dp) {
+        return (int) TypedValue.applyDimension(
+            TypedValue.COMPLEX_UNIT_DIP,
+            dp,
+            context.getResources().getDisplayMetrics()
+        );
+    }
+
+    // RecyclerView Adapter for the locations on the floor
+    private class LocationsAdapter extends RecyclerView.Adapter<LocationsAdapter.LocationViewHolder> {
+
+        private final List<BCLocation> locations = new ArrayList<>();
+        private final Map<BCLocation, Integer> positions = new HashMap<>();
+
+        void add(BCLocation location) {
+            if (positions.containsKey(location)) {
+                return;
+            }
+            positions.put(location, locations.size());
+            locations.add(location);
+            notifyItemInserted(locations.size() - 1);
+        }
+
+        void remove(BCLocation location) {
+            Integer position = positions.remove(location);
+            if (position == null) {
+                return;
+            }
+            // Move the last row into the gap so no other positions change
+            int last = locations.size() - 1;
+            BCLocation moved = locations.remove(last);
+            if (position != last) {
+                locations.set(position, moved);
+                positions.put(moved, position);
+                notifyItemChanged(position);
+                notifyItemRemoved(last);
+            } else {
+                notifyItemRemoved(position);
+            }
+        }
+
+        void clear() {
+            locations.clear();
+            positions.clear();
+            notifyDataSetChanged();
+        }
+
+        @Override
+        public LocationViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            View view = LayoutInflater.from(context).inflate(R.layout.item_visible_location, parent, false);
+            return new LocationViewHolder(view);
+        }
+
+        @Override
+        public void onBindViewHolder(LocationViewHolder holder, int position) {
+            holder.bind(locations.get(position));
+        }
+
+        @Override
+        public int getItemCount() {
+            return locations.size();
+        }
+
+        class LocationViewHolder extends RecyclerView.ViewHolder {
+            private TextView nameText;
+
+            LocationViewHolder(View itemView) {
+                super(itemView);
+                nameText = itemView.findViewById(R.id.visibleLocationName);
+            }
+
+            void bind(BCLocation location) {
+                nameText.setText(location.getName() != null ? location.getName() : location.getId());
+                itemView.setOnClickListener(v -> {
+                    if (listener != null) {
+                        listener.onVisibleLocationSelected(location);
+                    }
+                });
+            }
+        }
+    }
+}
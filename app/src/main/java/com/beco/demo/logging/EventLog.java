@@ -0,0 +1,134 @@
+package com.beco.demo.logging;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.beco.demo.BuildConfig;
+
+/**
+ * Structured in-memory log for hot paths.
+ *
+ * Recording an event stores its id, the time and its primitive arguments in a preallocated ring
+ * buffer; object arguments are kept by reference. Nothing is formatted or allocated until the log
+ * is dumped, so release builds pay a level check and a few array writes per event. Events below
+ * the minimum level are dropped. Debug builds also print every recorded event to logcat as it
+ * happens; that branch is compiled out of release builds.
+ *
+ * Safe to use from any thread.
+ */
+public final class EventLog {
+
+    private static final String TAG = "EventLog";
+    private static final int CAPACITY = 1024;
+    private static final int ARGS = 5;
+    /** Print events as they are recorded; a constant so release builds drop the formatting code. */
+    private static final boolean ECHO = BuildConfig.DEBUG;
+
+    private static final int[] events = new int[CAPACITY];
+    private static final long[] times = new long[CAPACITY];
+    private static final long[] args = new long[CAPACITY * ARGS];
+    private static final Object[] refs = new Object[CAPACITY];
+    private static long written;
+    private static volatile int minLevel = BuildConfig.DEBUG ? Log.DEBUG : Log.INFO;
+
+    private EventLog() {
+    }
+
+    /**
+     * Sets the lowest level recorded, e.g. {@link Log#VERBOSE} to include per-frame events.
+     */
+    public static void setMinLevel(int level) {
+        minLevel = level;
+    }
+
+    public static boolean isLoggable(LogEvent event) {
+        return event.level >= minLevel;
+    }
+
+    public static void log(LogEvent event) {
+        if (event.level >= minLevel) {
+            write(event, null, 0, 0, 0, 0, 0);
+        }
+    }
+
+    public static void log(LogEvent event, long a) {
+        if (event.level >= minLevel) {
+            write(event, null, a, 0, 0, 0, 0);
+        }
+    }
+
+    public static void log(LogEvent event, long a, long b) {
+        if (event.level >= minLevel) {
+            write(event, null, a, b, 0, 0, 0);
+        }
+    }
+
+    public static void log(LogEvent event, Object ref) {
+        if (event.level >= minLevel) {
+            write(event, ref, 0, 0, 0, 0, 0);
+        }
+    }
+
+    public static void log(LogEvent event, Object ref, long a) {
+        if (event.level >= minLevel) {
+            write(event, ref, a, 0, 0, 0, 0);
+        }
+    }
+
+    public static void log(LogEvent event, Object ref, long a, long b) {
+        if (event.level >= minLevel) {
+            write(event, ref, a, b, 0, 0, 0);
+        }
+    }
+
+    public static void log(LogEvent event, double a, double b, double c, double d, double e) {
+        if (event.level >= minLevel) {
+            write(event, null, Double.doubleToRawLongBits(a), Double.doubleToRawLongBits(b),
+                    Double.doubleToRawLongBits(c), Double.doubleToRawLongBits(d), Double.doubleToRawLongBits(e));
+        }
+    }
+
+    /**
+     * @return The recorded events, oldest first, one per line
+     */
+    public static String dump() {
+        StringBuilder out = new StringBuilder();
+        synchronized (EventLog.class) {
+            long first = Math.max(0, written - CAPACITY);
+            for (long n = first; n < written; n++) {
+                int slot = (int) (n % CAPACITY);
+                LogEvent event = LogEvent.byId(events[slot]);
+                out.append(times[slot]).append(' ').append(event.tag).append(": ")
+                        .append(event.format(refs[slot], args, slot * ARGS)).append('\n');
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Prints the recorded events to logcat, e.g. after a failure.
+     */
+    public static void dumpToLogcat(String reason) {
+        Log.i(TAG, "Recent events (" + reason + "):\n" + dump());
+    }
+
+    private static void write(LogEvent event, Object ref, long a, long b, long c, long d, long e) {
+        long now = SystemClock.elapsedRealtime();
+        synchronized (EventLog.class) {
+            int slot = (int) (written++ % CAPACITY);
+            events[slot] = event.id;
+            times[slot] = now;
+            refs[slot] = ref;
+            int base = slot * ARGS;
+            args[base] = a;
+            args[base + 1] = b;
+            args[base + 2] = c;
+            args[base + 3] = d;
+            args[base + 4] = e;
+        }
+        if (ECHO) {
+            long[] echoArgs = {a, b, c, d, e};
+            Log.println(event.level, event.tag, event.format(ref, echoArgs, 0));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.beco.demo.logging;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A kind of event recorded by {@link EventLog}: its level, tag and message template.
+ *
+ * Templates take the event's arguments in order: {@code %d} for a long, {@code %f} for a double
+ * and {@code %s} for the event's object argument. Define events once, as constants next to the
+ * code that records them.
+ */
+public final class LogEvent {
+
+    private static final List<LogEvent> registry = new ArrayList<>();
+
+    final int id;
+    final int level;
+    final String tag;
+    final String template;
+
+    private LogEvent(int level, String tag, String template) {
+        this.level = level;
+        this.tag = tag;
+        this.template = template;
+        synchronized (registry) {
+            this.id = registry.size();
+            registry.add(this);
+        }
+    }
+
+    public static LogEvent verbose(String tag, String template) {
+        return new LogEvent(Log.VERBOSE, tag, template);
+    }
+
+    public static LogEvent debug(String tag, String template) {
+        return new LogEvent(Log.DEBUG, tag, template);
+    }
+
+    public static LogEvent info(String tag, String template) {
+        return new LogEvent(Log.INFO, tag, template);
+    }
+
+    static LogEvent byId(int id) {
+        synchronized (registry) {
+            return registry.get(id);
+        }
+    }
+
+    /**
+     * Fills in the template.
+     *
+     * @param args Numeric arguments; doubles as raw long bits
+     */
+    String format(Object ref, long[] args, int offset) {
+        StringBuilder message = new StringBuilder(template.length() + 32);
+        int arg = offset;
+        for (int i = 0; i < template.length(); i++) {
+            char c = template.charAt(i);
+            if (c != '%' || i + 1 == template.length()) {
+                message.append(c);
+                continue;
+            }
+            char type = template.charAt(++i);
+            if (type == 'd') {
+                message.append(args[arg++]);
+            } else if (type == 'f') {
+                message.append(Double.longBitsToDouble(args[arg++]));
+            } else if (type == 's') {
+                message.append(ref);
+            } else {
+                message.append(c).append(type);
+            }
+        }
+        return message.toString();
+    }
+}
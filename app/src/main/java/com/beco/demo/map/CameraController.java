@@ -0,0 +1,286 @@
+package com.beco.demo.map;
+
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.Choreographer;
+
+import com.beco.demo.MainThread;
+import com.becomap.sdk.exceptions.BCMapException;
+import com.becomap.sdk.models.BCMapViewOptions;
+
+import java.util.Arrays;
+
+/**
+ * Applies camera changes to the map as one viewport update per frame.
+ *
+ * Changes are collected in a {@link Transaction} and committed together. Everything committed
+ * before the next frame is merged - later values win - and sent to the engine as a single
+ * {@code setViewport}, so center, zoom, bearing and pitch never cause separate redraws. An animated
+ * transaction eases from the current camera to the target, again with one update per frame.
+ *
+ * {@code setViewport} always gets a complete camera. Until the map has reported its camera, the
+ * values not being changed are unknown; changes are then sent once through the single-value
+ * calls instead, and not animated.
+ *
+ * Must be used from the main thread.
+ */
+public class CameraController implements ViewChangeDispatcher.Consumer {
+
+    private static final String TAG = "CameraController";
+
+    /**
+     * The map engine's viewport call.
+     */
+    public interface Engine {
+        void setViewport(BCMapViewOptions options) throws BCMapException;
+
+        void updateZoom(double zoom) throws BCMapException;
+
+        void updateBearing(double bearing) throws BCMapException;
+
+        void updatePitch(double pitch) throws BCMapException;
+    }
+
+    /**
+     * Camera changes to apply together. Values not set are left as they are.
+     */
+    public final class Transaction {
+        private double latitude = Double.NaN;
+        private double longitude = Double.NaN;
+        private double zoom = Double.NaN;
+        private double bearing = Double.NaN;
+        private double pitch = Double.NaN;
+        private long durationMillis;
+
+        private Transaction() {
+        }
+
+        public Transaction center(double latitude, double longitude) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            return this;
+        }
+
+        public Transaction zoom(double zoom) {
+            this.zoom = zoom;
+            return this;
+        }
+
+        /**
+         * @param bearing Clockwise from north, in degrees
+         */
+        public Transaction bearing(double bearing) {
+            this.bearing = bearing;
+            return this;
+        }
+
+        /**
+         * @param pitch Tilt in degrees, 0 looks straight down
+         */
+        public Transaction pitch(double pitch) {
+            this.pitch = pitch;
+            return this;
+        }
+
+        /**
+         * Eases to the new camera instead of jumping.
+         */
+        public Transaction animate(long durationMillis) {
+            this.durationMillis = durationMillis;
+            return this;
+        }
+
+        /**
+         * Queues the changes for the next frame.
+         */
+        public void commit() {
+            CameraController.this.commit(this);
+        }
+    }
+
+    // Camera slots
+    private static final int LATITUDE = 0;
+    private static final int LONGITUDE = 1;
+    private static final int ZOOM = 2;
+    private static final int BEARING = 3;
+    private static final int PITCH = 4;
+    private static final int SLOTS = 5;
+
+    private final Engine engine;
+    private final Choreographer choreographer = Choreographer.getInstance();
+    private final Choreographer.FrameCallback frameCallback = frameTimeNanos -> applyFrame();
+
+    /** Camera as last reported by the map, NaN where unknown. */
+    private final double[] current = new double[SLOTS];
+    /** Camera the pending changes lead to. */
+    private final double[] target = new double[SLOTS];
+    /** Camera at the start of the running animation. */
+    private final double[] from = new double[SLOTS];
+    private final double[] frame = new double[SLOTS];
+
+    private boolean framePosted;
+    private long animationStart;
+    private long animationDuration;
+
+    public CameraController(Engine engine) {
+        this.engine = engine;
+        Arrays.fill(current, Double.NaN);
+        Arrays.fill(target, Double.NaN);
+    }
+
+    /**
+     * Starts a set of camera changes.
+     */
+    public Transaction edit() {
+        return new Transaction();
+    }
+
+    /**
+     * Drops changes not applied yet and stops any animation.
+     */
+    public void cancel() {
+        Arrays.fill(target, Double.NaN);
+        animationDuration = 0;
+        if (framePosted) {
+            framePosted = false;
+            choreographer.removeFrameCallback(frameCallback);
+        }
+    }
+
+    @Override
+    public void onViewChanged(double latitude, double longitude, double zoom, double bearing, double pitch,
+                              long timestamp) {
+        current[LATITUDE] = latitude;
+        current[LONGITUDE] = longitude;
+        current[ZOOM] = zoom;
+        current[BEARING] = bearing;
+        current[PITCH] = pitch;
+    }
+
+    private void commit(Transaction transaction) {
+        MainThread.check("CameraController.commit");
+        if (transaction.durationMillis > 0) {
+            // Start from where the camera is now - mid-animation, that is the last frame sent
+            for (int i = 0; i < SLOTS; i++) {
+                from[i] = animationDuration > 0 && !Double.isNaN(frame[i]) ? frame[i] : current[i];
+            }
+            animationStart = SystemClock.uptimeMillis();
+            animationDuration = transaction.durationMillis;
+        }
+        merge(LATITUDE, transaction.latitude);
+        merge(LONGITUDE, transaction.longitude);
+        merge(ZOOM, transaction.zoom);
+        merge(BEARING, transaction.bearing);
+        merge(PITCH, transaction.pitch);
+        if (!framePosted) {
+            framePosted = true;
+            choreographer.postFrameCallback(frameCallback);
+        }
+    }
+
+    private void merge(int slot, double value) {
+        if (!Double.isNaN(value)) {
+            target[slot] = value;
+        }
+    }
+
+    private void applyFrame() {
+        framePosted = false;
+        if (!isComplete()) {
+            applyValues();
+            return;
+        }
+        boolean animating = animationDuration > 0 && isKnown(from);
+        double t = 1;
+        if (animating) {
+            t = Math.min(1, (SystemClock.uptimeMillis() - animationStart) / (double) animationDuration);
+            t = t * t * (3 - 2 * t); // Ease in and out
+        }
+        for (int i = 0; i < SLOTS; i++) {
+            if (Double.isNaN(target[i])) {
+                frame[i] = current[i];
+            } else if (animating && !Double.isNaN(from[i])) {
+                double delta = target[i] - from[i];
+                if (i == BEARING) {
+                    delta = ((delta % 360) + 540) % 360 - 180; // Turn the short way round
+                }
+                frame[i] = from[i] + delta * t;
+            } else {
+                frame[i] = target[i];
+            }
+        }
+
+        BCMapViewOptions options = new BCMapViewOptions();
+        options.setCenter(Arrays.asList(frame[LATITUDE], frame[LONGITUDE]));
+        options.setZoom(frame[ZOOM]);
+        options.setBearing(frame[BEARING]);
+        options.setPitch(frame[PITCH]);
+        try {
+            engine.setViewport(options);
+        } catch (BCMapException e) {
+            Log.e(TAG, "Failed to update the viewport", e);
+        }
+
+        if (animating && t < 1) {
+            framePosted = true;
+            choreographer.postFrameCallback(frameCallback);
+        } else {
+            // Settled - the map reports the camera from here on
+            animationDuration = 0;
+            Arrays.fill(target, Double.NaN);
+        }
+    }
+
+    /**
+     * Sends the pending changes one value at a time, for when the camera is not fully known. A
+     * center can only be set together with the rest of the camera and waits for the map.
+     */
+    private void applyValues() {
+        animationDuration = 0;
+        try {
+            if (!Double.isNaN(target[ZOOM])) {
+                engine.updateZoom(target[ZOOM]);
+            }
+            if (!Double.isNaN(target[BEARING])) {
+                engine.updateBearing(target[BEARING]);
+            }
+            if (!Double.isNaN(target[PITCH])) {
+                engine.updatePitch(target[PITCH]);
+            }
+        } catch (BCMapException e) {
+            Log.e(TAG, "Failed to update the camera", e);
+        }
+        target[ZOOM] = Double.NaN;
+        target[BEARING] = Double.NaN;
+        target[PITCH] = Double.NaN;
+        if (!Double.isNaN(target[LATITUDE])) {
+            Log.w(TAG, "Camera not reported yet - center change dropped");
+            target[LATITUDE] = Double.NaN;
+            target[LONGITUDE] = Double.NaN;
+        }
+    }
+
+    /**
+     * @return true if every slot is either changed or known from the map
+     */
+    private boolean isComplete() {
+        for (int i = 0; i < SLOTS; i++) {
+            if (Double.isNaN(target[i]) && Double.isNaN(current[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if every slot of {@code camera} has a value
+     */
+    private static boolean isKnown(double[] camera) {
+        for (double value : camera) {
+            if (Double.isNaN(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,225 @@
+package com.beco.demo.map;
+
+import android.util.Log;
+import android.view.Choreographer;
+
+import com.beco.demo.MainThread;
+import com.beco.demo.logging.EventLog;
+import com.beco.demo.logging.LogEvent;
+import com.becomap.sdk.BCMapView;
+import com.becomap.sdk.exceptions.BCMapException;
+import com.becomap.sdk.models.BCLocation;
+import com.becomap.sdk.models.BCMapFloor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sends selection, route and floor commands to the map once per frame.
+ *
+ * Commands issued before the next frame are collected, and any command whose effect a later one
+ * replaces is dropped: a selection replaces the previous selection or clear, a floor the previous
+ * floor, a shown route the previous shown route, and clearing the routes replaces everything queued
+ * for the routes before it. The commands that remain run in the order they were issued, so the map
+ * ends up as if every command had run. Engine calls made outside the queue should {@link #flush()}
+ * it first to keep their place in that order.
+ *
+ * Must be used from the main thread.
+ */
+public class MapCommandQueue {
+
+    private static final String TAG = "MapCommandQueue";
+    private static final LogEvent FLUSHED = LogEvent.debug(TAG, "Ran %d map commands, %d superseded");
+
+    public enum Kind {
+        CLEAR_SELECTION,
+        SELECT_LOCATION,
+        CLEAR_ALL_ROUTES,
+        SHOW_ROUTE,
+        SELECT_FLOOR
+    }
+
+    public interface Listener {
+        /**
+         * Called when the engine rejects a command. Commands run a frame after they are issued, so
+         * this is where callers learn about failures.
+         */
+        void onCommandFailed(Kind kind, BCMapException e);
+    }
+
+    private static final class Command {
+        final Kind kind;
+        final BCLocation location;
+        final BCMapFloor floor;
+        final int routeIndex;
+
+        Command(Kind kind, BCLocation location, BCMapFloor floor, int routeIndex) {
+            this.kind = kind;
+            this.location = location;
+            this.floor = floor;
+            this.routeIndex = routeIndex;
+        }
+    }
+
+    private final BCMapView mapView;
+    private final Choreographer choreographer = Choreographer.getInstance();
+    private final Choreographer.FrameCallback frameCallback = frameTimeNanos -> {
+        framePosted = false;
+        flush();
+    };
+
+    private final List<Command> pending = new ArrayList<>();
+    private final List<Command> running = new ArrayList<>();
+    private Listener listener;
+    private boolean framePosted;
+    private int supersededInFrame;
+    private long issuedCount;
+    private long savedCount;
+
+    public MapCommandQueue(BCMapView mapView) {
+        this.mapView = mapView;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public void clearSelection() {
+        enqueue(new Command(Kind.CLEAR_SELECTION, null, null, -1));
+    }
+
+    public void selectLocation(BCLocation location) {
+        enqueue(new Command(Kind.SELECT_LOCATION, location, null, -1));
+    }
+
+    public void clearAllRoutes() {
+        enqueue(new Command(Kind.CLEAR_ALL_ROUTES, null, null, -1));
+    }
+
+    /**
+     * Draws one route of the route set the engine calculated last.
+     *
+     * @param routeIndex Index into the route list of that calculation, as passed to
+     *                   {@code BCRouteListener.onRouteCalculated}
+     */
+    public void showRoute(int routeIndex) {
+        enqueue(new Command(Kind.SHOW_ROUTE, null, null, routeIndex));
+    }
+
+    public void selectFloor(BCMapFloor floor) {
+        enqueue(new Command(Kind.SELECT_FLOOR, null, floor, -1));
+    }
+
+    /**
+     * Runs the pending commands now instead of on the next frame.
+     */
+    public void flush() {
+        if (framePosted) {
+            framePosted = false;
+            choreographer.removeFrameCallback(frameCallback);
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        // A listener may issue new commands - those wait for the next frame
+        running.addAll(pending);
+        pending.clear();
+        int superseded = supersededInFrame;
+        supersededInFrame = 0;
+        for (int i = 0; i < running.size(); i++) {
+            run(running.get(i));
+        }
+        EventLog.log(FLUSHED, running.size(), superseded);
+        running.clear();
+    }
+
+    /**
+     * Drops the commands not run yet.
+     */
+    public void cancel() {
+        pending.clear();
+        supersededInFrame = 0;
+        if (framePosted) {
+            framePosted = false;
+            choreographer.removeFrameCallback(frameCallback);
+        }
+    }
+
+    /**
+     * @return The number of commands issued so far
+     */
+    public long getIssuedCount() {
+        return issuedCount;
+    }
+
+    /**
+     * @return The number of engine calls saved by dropping superseded commands
+     */
+    public long getSavedCount() {
+        return savedCount;
+    }
+
+    private void enqueue(Command command) {
+        MainThread.check("MapCommandQueue");
+        issuedCount++;
+        for (int i = pending.size() - 1; i >= 0; i--) {
+            if (supersedes(command.kind, pending.get(i).kind)) {
+                pending.remove(i);
+                supersededInFrame++;
+                savedCount++;
+            }
+        }
+        pending.add(command);
+        if (!framePosted) {
+            framePosted = true;
+            choreographer.postFrameCallback(frameCallback);
+        }
+    }
+
+    /**
+     * @return Whether running {@code later} makes an earlier {@code earlier} pointless
+     */
+    private static boolean supersedes(Kind later, Kind earlier) {
+        switch (later) {
+            case CLEAR_SELECTION:
+            case SELECT_LOCATION:
+                return earlier == Kind.CLEAR_SELECTION || earlier == Kind.SELECT_LOCATION;
+            case CLEAR_ALL_ROUTES:
+                return earlier == Kind.CLEAR_ALL_ROUTES || earlier == Kind.SHOW_ROUTE;
+            case SHOW_ROUTE:
+                // A clear before it still has to run - it removes routes the shown one does not
+                return earlier == Kind.SHOW_ROUTE;
+            case SELECT_FLOOR:
+                return earlier == Kind.SELECT_FLOOR;
+            default:
+                return false;
+        }
+    }
+
+    private void run(Command command) {
+        try {
+            switch (command.kind) {
+                case CLEAR_SELECTION:
+                    mapView.clearSelection();
+                    break;
+                case SELECT_LOCATION:
+                    mapView.selectLocation(command.location);
+                    break;
+                case CLEAR_ALL_ROUTES:
+                    mapView.clearAllRoutes();
+                    break;
+                case SHOW_ROUTE:
+                    mapView.showRoute(command.routeIndex);
+                    break;
+                case SELECT_FLOOR:
+                    mapView.selectFloor(command.floor);
+                    break;
+            }
+        } catch (BCMapException e) {
+            Log.e(TAG, "Map command " + command.kind + " failed", e);
+            if (listener != null) {
+                listener.onCommandFailed(command.kind, e);
+            }
+        }
+    }
+}
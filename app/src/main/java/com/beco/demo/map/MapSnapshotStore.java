@@ -0,0 +1,235 @@
+package com.beco.demo.map;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Rect;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.PixelCopy;
+import android.view.View;
+import android.view.Window;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Keeps a small picture of the map as it was last seen, to show while the map loads on the next
+ * launch.
+ *
+ * The map is copied from the window at a third of its size, so the copy is cheap, and stored as a
+ * JPEG together with the camera it shows. Encoding, writing, reading and decoding all run on a
+ * worker thread; loaded snapshots are handed back on the main thread.
+ */
+public class MapSnapshotStore {
+
+    private static final String TAG = "MapSnapshotStore";
+    private static final int MAGIC = 0x4D534E50; // "MSNP"
+    private static final int FORMAT_VERSION = 1;
+    private static final int SCALE = 3;
+    private static final int JPEG_QUALITY = 80;
+    private static final int MAX_BYTES = 1024 * 1024;
+
+    /**
+     * A stored picture of the map and the camera it was taken at.
+     */
+    public static final class Snapshot {
+        private final Bitmap bitmap;
+        private final double latitude;
+        private final double longitude;
+        private final double zoom;
+        private final double bearing;
+        private final double pitch;
+
+        Snapshot(Bitmap bitmap, double latitude, double longitude, double zoom, double bearing, double pitch) {
+            this.bitmap = bitmap;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.zoom = zoom;
+            this.bearing = bearing;
+            this.pitch = pitch;
+        }
+
+        public Bitmap getBitmap() {
+            return bitmap;
+        }
+
+        /**
+         * @return Whether the snapshot shows the camera of {@code state}, i.e. the map reopens at
+         *         what the snapshot shows
+         */
+        public boolean matches(MapState state) {
+            return Double.compare(latitude, state.getLatitude()) == 0
+                    && Double.compare(longitude, state.getLongitude()) == 0
+                    && Double.compare(zoom, state.getZoom()) == 0
+                    && Double.compare(bearing, state.getBearing()) == 0
+                    && Double.compare(pitch, state.getPitch()) == 0;
+        }
+    }
+
+    public interface Callback {
+        /**
+         * @param snapshot The stored snapshot, or null if there is none
+         */
+        void onLoaded(Snapshot snapshot);
+    }
+
+    private final File file;
+    private final ExecutorService diskExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private Future<Snapshot> preloaded; // Guarded by this
+
+    public MapSnapshotStore(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Copies what {@code mapView} shows from the window and stores it with the camera of
+     * {@code state}. Call while the map is on screen, e.g. when the activity pauses.
+     */
+    public void capture(Window window, View mapView, MapState state) {
+        int width = mapView.getWidth();
+        int height = mapView.getHeight();
+        if (width < SCALE || height < SCALE || !mapView.isShown()) {
+            return;
+        }
+        int[] location = new int[2];
+        mapView.getLocationInWindow(location);
+        Rect source = new Rect(location[0], location[1], location[0] + width, location[1] + height);
+        // PixelCopy scales to the bitmap, so the full-size picture is never allocated
+        final Bitmap bitmap = Bitmap.createBitmap(width / SCALE, height / SCALE, Bitmap.Config.ARGB_8888);
+        final long start = SystemClock.uptimeMillis();
+        try {
+            PixelCopy.request(window, source, bitmap, result -> {
+                if (result != PixelCopy.SUCCESS) {
+                    Log.w(TAG, "Map snapshot failed: " + result);
+                    bitmap.recycle();
+                    return;
+                }
+                diskExecutor.execute(() -> {
+                    write(bitmap, state);
+                    bitmap.recycle();
+                    Log.d(TAG, "Map snapshot stored in " + (SystemClock.uptimeMillis() - start) + " ms");
+                });
+            }, mainHandler);
+        } catch (IllegalArgumentException e) {
+            // The window has no surface any more
+            Log.w(TAG, "Map snapshot not possible", e);
+            bitmap.recycle();
+        }
+    }
+
+    /**
+     * Reads the stored snapshot on the calling thread, e.g. a startup worker, for the next
+     * {@link #load} to hand out without reading again.
+     */
+    public void preload() {
+        FutureTask<Snapshot> task = new FutureTask<>(() -> read());
+        synchronized (this) {
+            preloaded = task;
+        }
+        task.run();
+    }
+
+    public void load(Callback callback) {
+        final Future<Snapshot> readAhead;
+        synchronized (this) {
+            readAhead = preloaded;
+            preloaded = null;
+        }
+        diskExecutor.execute(() -> {
+            long start = SystemClock.uptimeMillis();
+            final Snapshot snapshot = readAhead != null ? await(readAhead) : read();
+            if (snapshot != null) {
+                Log.d(TAG, "Map snapshot decoded in " + (SystemClock.uptimeMillis() - start) + " ms");
+            }
+            mainHandler.post(() -> callback.onLoaded(snapshot));
+        });
+    }
+
+    /**
+     * @return The result of a read ahead, waiting for it to finish if need be
+     */
+    private static Snapshot await(Future<Snapshot> readAhead) {
+        try {
+            return readAhead.get();
+        } catch (ExecutionException e) {
+            Log.e(TAG, "Failed to read ahead", e.getCause());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private void write(Bitmap bitmap, MapState state) {
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream(64 * 1024);
+        if (!bitmap.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, jpeg)) {
+            Log.w(TAG, "Could not encode map snapshot");
+            return;
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(temp))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeDouble(state.getLatitude());
+            out.writeDouble(state.getLongitude());
+            out.writeDouble(state.getZoom());
+            out.writeDouble(state.getBearing());
+            out.writeDouble(state.getPitch());
+            out.writeInt(jpeg.size());
+            jpeg.writeTo(out);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to write map snapshot", e);
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            Log.e(TAG, "Could not replace " + file);
+        }
+    }
+
+    private Snapshot read() {
+        if (!file.exists() || file.length() > MAX_BYTES) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                Log.w(TAG, "Ignoring map snapshot in unknown format");
+                return null;
+            }
+            double latitude = in.readDouble();
+            double longitude = in.readDouble();
+            double zoom = in.readDouble();
+            double bearing = in.readDouble();
+            double pitch = in.readDouble();
+            int length = in.readInt();
+            if (length <= 0 || length > MAX_BYTES) {
+                return null;
+            }
+            byte[] jpeg = new byte[length];
+            in.readFully(jpeg);
+
+            // Opaque and only shown behind the loader - RGB_565 halves the memory
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inPreferredConfig = Bitmap.Config.RGB_565;
+            Bitmap bitmap = BitmapFactory.decodeByteArray(jpeg, 0, jpeg.length, options);
+            return bitmap != null ? new Snapshot(bitmap, latitude, longitude, zoom, bearing, pitch) : null;
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to read map snapshot", e);
+            return null;
+        }
+    }
+}
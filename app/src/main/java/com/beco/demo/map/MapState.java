@@ -0,0 +1,190 @@
+package com.beco.demo.map;
+
+import android.util.Log;
+
+import com.beco.demo.routing.RouteSummary;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What the map screen showed when it was left: the camera, the selected floor and location and the
+ * ends of the route on display.
+ *
+ * Only ids are kept, so a state is a few hundred bytes whether it goes into the saved instance
+ * state or to disk. The route's summary is kept too, so the route info bar can be filled in before
+ * the map engine has the route again.
+ *
+ * Immutable.
+ */
+public final class MapState {
+
+    private static final String TAG = "MapState";
+    private static final int MAGIC = 0x4D415053; // "MAPS"
+    private static final int FORMAT_VERSION = 1;
+
+    private final double latitude;
+    private final double longitude;
+    private final double zoom;
+    private final double bearing;
+    private final double pitch;
+    private final String floorId;
+    private final String selectedLocationId;
+    private final String routeSourceId;
+    private final String routeDestinationId;
+    private final RouteSummary routeSummary;
+
+    /**
+     * @param latitude Camera values, NaN where unknown
+     * @param routeSummary Summary of the displayed route, or null
+     */
+    public MapState(double latitude, double longitude, double zoom, double bearing, double pitch,
+                    String floorId, String selectedLocationId, String routeSourceId,
+                    String routeDestinationId, RouteSummary routeSummary) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.zoom = zoom;
+        this.bearing = bearing;
+        this.pitch = pitch;
+        this.floorId = floorId;
+        this.selectedLocationId = selectedLocationId;
+        this.routeSourceId = routeSourceId;
+        this.routeDestinationId = routeDestinationId;
+        this.routeSummary = routeSummary;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public double getZoom() {
+        return zoom;
+    }
+
+    public double getBearing() {
+        return bearing;
+    }
+
+    public double getPitch() {
+        return pitch;
+    }
+
+    public String getFloorId() {
+        return floorId;
+    }
+
+    public String getSelectedLocationId() {
+        return selectedLocationId;
+    }
+
+    public String getRouteSourceId() {
+        return routeSourceId;
+    }
+
+    public String getRouteDestinationId() {
+        return routeDestinationId;
+    }
+
+    /**
+     * @return The displayed route's summary, or null if no route was displayed
+     */
+    public RouteSummary getRouteSummary() {
+        return routeSummary;
+    }
+
+    public boolean hasRoute() {
+        return routeSourceId != null && routeDestinationId != null;
+    }
+
+    public byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeDouble(latitude);
+            out.writeDouble(longitude);
+            out.writeDouble(zoom);
+            out.writeDouble(bearing);
+            out.writeDouble(pitch);
+            writeString(out, floorId);
+            writeString(out, selectedLocationId);
+            writeString(out, routeSourceId);
+            writeString(out, routeDestinationId);
+            out.writeBoolean(routeSummary != null);
+            if (routeSummary != null) {
+                writeString(out, routeSummary.getFormattedDistance());
+                writeString(out, routeSummary.getFormattedTime());
+                List<String> floors = routeSummary.getInvolvedFloors();
+                int floorCount = Math.min(floors.size(), 255);
+                out.writeByte(floorCount);
+                for (int f = 0; f < floorCount; f++) {
+                    out.writeUTF(floors.get(f));
+                }
+            }
+        } catch (IOException e) {
+            // Not thrown by in-memory streams
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @return The state stored in {@code bytes}, or null if they are missing or in another format
+     */
+    public static MapState fromBytes(byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                Log.w(TAG, "Ignoring map state in unknown format");
+                return null;
+            }
+            double latitude = in.readDouble();
+            double longitude = in.readDouble();
+            double zoom = in.readDouble();
+            double bearing = in.readDouble();
+            double pitch = in.readDouble();
+            String floorId = readString(in);
+            String selectedLocationId = readString(in);
+            String routeSourceId = readString(in);
+            String routeDestinationId = readString(in);
+            RouteSummary routeSummary = null;
+            if (in.readBoolean()) {
+                String distance = readString(in);
+                String time = readString(in);
+                int floorCount = in.readUnsignedByte();
+                List<String> floors = new ArrayList<>(floorCount);
+                for (int f = 0; f < floorCount; f++) {
+                    floors.add(in.readUTF());
+                }
+                routeSummary = new RouteSummary(distance, time, floors);
+            }
+            return new MapState(latitude, longitude, zoom, bearing, pitch, floorId, selectedLocationId,
+                    routeSourceId, routeDestinationId, routeSummary);
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Failed to read map state", e);
+            return null;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,136 @@
+package com.beco.demo.map;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Keeps the last {@link MapState} on disk so a relaunch can open where the user left.
+ *
+ * Reads and writes run on a worker thread; loaded states are handed back on the main thread.
+ * Writes replace the file atomically, so a crash mid-write leaves the previous state.
+ */
+public class MapStateStore {
+
+    private static final String TAG = "MapStateStore";
+    private static final int MAX_BYTES = 64 * 1024;
+
+    public interface Callback {
+        /**
+         * @param state The stored state, or null if there is none
+         */
+        void onLoaded(MapState state);
+    }
+
+    private final File file;
+    private final ExecutorService diskExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private Future<MapState> preloaded; // Guarded by this
+
+    public MapStateStore(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Reads the stored state on the calling thread, e.g. a startup worker, for the next
+     * {@link #load} to hand out without reading again.
+     */
+    public void preload() {
+        FutureTask<MapState> task = new FutureTask<>(() -> MapState.fromBytes(read()));
+        synchronized (this) {
+            preloaded = task;
+        }
+        task.run();
+    }
+
+    public void load(Callback callback) {
+        final Future<MapState> readAhead;
+        synchronized (this) {
+            readAhead = preloaded;
+            preloaded = null;
+        }
+        diskExecutor.execute(() -> {
+            final MapState state = readAhead != null ? await(readAhead) : MapState.fromBytes(read());
+            mainHandler.post(() -> callback.onLoaded(state));
+        });
+    }
+
+    public void save(MapState state) {
+        final byte[] bytes = state.toBytes();
+        diskExecutor.execute(() -> write(bytes));
+    }
+
+    /**
+     * Forgets the stored state.
+     */
+    public void clear() {
+        diskExecutor.execute(() -> {
+            if (file.exists() && !file.delete()) {
+                Log.w(TAG, "Could not delete " + file);
+            }
+        });
+    }
+
+    /**
+     * @return The result of a read ahead, waiting for it to finish if need be
+     */
+    private static MapState await(Future<MapState> readAhead) {
+        try {
+            return readAhead.get();
+        } catch (ExecutionException e) {
+            Log.e(TAG, "Failed to read ahead", e.getCause());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private byte[] read() {
+        if (!file.exists() || file.length() > MAX_BYTES) {
+            return null;
+        }
+        byte[] bytes = new byte[(int) file.length()];
+        try (InputStream in = new FileInputStream(file)) {
+            int read = 0;
+            while (read < bytes.length) {
+                int n = in.read(bytes, read, bytes.length - read);
+                if (n < 0) {
+                    return null;
+                }
+                read += n;
+            }
+            return bytes;
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to read map state", e);
+            return null;
+        }
+    }
+
+    private void write(byte[] bytes) {
+        File temp = new File(file.getPath() + ".tmp");
+        try (OutputStream out = new FileOutputStream(temp)) {
+            out.write(bytes);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to write map state", e);
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            Log.e(TAG, "Could not replace " + file);
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.beco.demo.map;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import com.beco.demo.MainThread;
+import com.beco.demo.logging.EventLog;
+import com.beco.demo.logging.LogEvent;
+import com.becomap.sdk.listeners.BCMapViewListener;
+import com.becomap.sdk.listeners.BCRouteListener;
+import com.becomap.sdk.models.BCInitErrorCode;
+import com.becomap.sdk.models.BCLocation;
+import com.becomap.sdk.models.BCMapFloor;
+import com.becomap.sdk.models.BCMapViewOptions;
+import com.becomap.sdk.models.BCRoute;
+import com.becomap.sdk.models.BCRouteErrorCode;
+import com.becomap.sdk.models.BCSite;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sits between the SDK's map and route callbacks and the app, so the app knows which thread it is on.
+ *
+ * The SDK does not say which thread its callbacks arrive on. Registered as both of its listeners,
+ * the dispatcher hands every callback to the app's listeners on the main thread, in arrival order,
+ * with two exceptions:
+ * <ul>
+ *   <li>{@code onViewChange} is passed on at once, on the calling thread, because it fires for every
+ *   camera step; hand it to a {@link ViewChangeDispatcher}, which takes events on any thread.</li>
+ *   <li>Bursts are collapsed. Of the selections or floor changes that arrive before the main thread
+ *   gets to them only the latest is delivered, a floor change to the floor already reported is
+ *   dropped, and so is a selection of the same locations shortly after the previous one.</li>
+ * </ul>
+ * Route results are never collapsed: each one answers a request.
+ *
+ * Create the dispatcher and set its listeners on the main thread.
+ */
+public class SdkCallbackDispatcher implements BCMapViewListener, BCRouteListener {
+
+    private static final String TAG = "SdkCallbackDispatcher";
+    private static final LogEvent OFF_MAIN = LogEvent.debug(TAG, "%s arrived off the main thread");
+    private static final LogEvent COLLAPSED = LogEvent.debug(TAG, "Collapsed %s, %d collapsed so far");
+
+    /** Repeats of a selection within this time are taken as the same tap. */
+    private static final long SELECTION_BURST_MILLIS = 300;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private BCMapViewListener mapListener;
+    private BCRouteListener routeListener;
+
+    // Latest undelivered events, guarded by lock
+    private final Object lock = new Object();
+    private List<BCLocation> pendingSelection;
+    private long pendingSelectionTimestamp;
+    private long pendingSelectionArrival;
+    private boolean selectionPosted;
+    private BCMapFloor pendingFloor;
+    private boolean floorPosted;
+    private long collapsedCount;
+
+    // Last delivered events, main thread only
+    private String deliveredSelection;
+    private long deliveredSelectionArrival;
+    private String deliveredFloorId;
+
+    private final Runnable deliverSelection = this::deliverSelection;
+    private final Runnable deliverFloor = this::deliverFloor;
+
+    public void setMapListener(BCMapViewListener listener) {
+        MainThread.check("setMapListener");
+        this.mapListener = listener;
+    }
+
+    public void setRouteListener(BCRouteListener listener) {
+        MainThread.check("setRouteListener");
+        this.routeListener = listener;
+    }
+
+    /**
+     * Drops events not delivered yet, e.g. when the activity goes away.
+     */
+    public void cancel() {
+        synchronized (lock) {
+            pendingSelection = null;
+            selectionPosted = false;
+            pendingFloor = null;
+            floorPosted = false;
+        }
+        mainHandler.removeCallbacksAndMessages(null);
+    }
+
+    /**
+     * @return The number of events dropped by collapsing bursts
+     */
+    public long getCollapsedCount() {
+        synchronized (lock) {
+            return collapsedCount;
+        }
+    }
+
+    // BCMapViewListener
+
+    @Override
+    public void onRenderComplete(BCSite site) {
+        arrived("onRenderComplete");
+        mainHandler.post(() -> {
+            // A new site - nothing reported so far applies to it
+            deliveredFloorId = null;
+            deliveredSelection = null;
+            if (mapListener != null) {
+                mapListener.onRenderComplete(site);
+            }
+        });
+    }
+
+    @Override
+    public void onInitError(BCInitErrorCode errorCode) {
+        arrived("onInitError");
+        mainHandler.post(() -> {
+            if (mapListener != null) {
+                mapListener.onInitError(errorCode);
+            }
+        });
+    }
+
+    @Override
+    public void onFloorChanged(BCMapFloor floor) {
+        arrived("onFloorChanged");
+        synchronized (lock) {
+            if (floorPosted) {
+                collapsed("onFloorChanged");
+            }
+            pendingFloor = floor;
+            if (!floorPosted) {
+                floorPosted = true;
+                mainHandler.post(deliverFloor);
+            }
+        }
+    }
+
+    @Override
+    public void onViewChange(BCMapViewOptions viewOptions, long timestamp) {
+        if (mapListener != null) {
+            mapListener.onViewChange(viewOptions, timestamp);
+        }
+    }
+
+    @Override
+    public void onLocationsSelected(List<BCLocation> locations, long timestamp) {
+        arrived("onLocationsSelected");
+        // The SDK may reuse its list - keep a copy until delivery
+        List<BCLocation> copy = locations != null
+                ? new ArrayList<>(locations) : new ArrayList<BCLocation>();
+        synchronized (lock) {
+            if (selectionPosted) {
+                collapsed("onLocationsSelected");
+            }
+            pendingSelection = copy;
+            pendingSelectionTimestamp = timestamp;
+            pendingSelectionArrival = SystemClock.uptimeMillis();
+            if (!selectionPosted) {
+                selectionPosted = true;
+                mainHandler.post(deliverSelection);
+            }
+        }
+    }
+
+    @Override
+    public void onAppDataLoaded() {
+        arrived("onAppDataLoaded");
+        mainHandler.post(() -> {
+            if (mapListener != null) {
+                mapListener.onAppDataLoaded();
+            }
+        });
+    }
+
+    // BCRouteListener
+
+    @Override
+    public void onRouteCalculated(List<BCRoute> routes) {
+        arrived("onRouteCalculated");
+        mainHandler.post(() -> {
+            if (routeListener != null) {
+                routeListener.onRouteCalculated(routes);
+            }
+        });
+    }
+
+    @Override
+    public void onError(BCRouteErrorCode errorCode) {
+        arrived("onError");
+        mainHandler.post(() -> {
+            if (routeListener != null) {
+                routeListener.onError(errorCode);
+            }
+        });
+    }
+
+    private void deliverFloor() {
+        BCMapFloor floor;
+        synchronized (lock) {
+            floor = pendingFloor;
+            pendingFloor = null;
+            floorPosted = false;
+        }
+        String floorId = floor != null ? floor.getId() : null;
+        if (floorId != null && floorId.equals(deliveredFloorId)) {
+            synchronized (lock) {
+                collapsed("onFloorChanged");
+            }
+            return;
+        }
+        deliveredFloorId = floorId;
+        if (mapListener != null) {
+            mapListener.onFloorChanged(floor);
+        }
+    }
+
+    private void deliverSelection() {
+        List<BCLocation> locations;
+        long timestamp;
+        long arrival;
+        synchronized (lock) {
+            locations = pendingSelection;
+            timestamp = pendingSelectionTimestamp;
+            arrival = pendingSelectionArrival;
+            pendingSelection = null;
+            selectionPosted = false;
+        }
+        if (locations == null) {
+            return;
+        }
+        String selection = idsOf(locations);
+        if (selection.equals(deliveredSelection) && arrival - deliveredSelectionArrival < SELECTION_BURST_MILLIS) {
+            synchronized (lock) {
+                collapsed("onLocationsSelected");
+            }
+            return;
+        }
+        deliveredSelection = selection;
+        deliveredSelectionArrival = arrival;
+        if (mapListener != null) {
+            mapListener.onLocationsSelected(locations, timestamp);
+        }
+    }
+
+    private static String idsOf(List<BCLocation> locations) {
+        StringBuilder ids = new StringBuilder();
+        for (BCLocation location : locations) {
+            ids.append(location.getId()).append('\n');
+        }
+        return ids.toString();
+    }
+
+    /**
+     * Counts a dropped event. Call with the lock held.
+     */
+    private void collapsed(String callback) {
+        collapsedCount++;
+        EventLog.log(COLLAPSED, callback, collapsedCount);
+    }
+
+    private static void arrived(String callback) {
+        if (EventLog.isLoggable(OFF_MAIN) && !MainThread.isCurrent()) {
+            EventLog.log(OFF_MAIN, callback);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.beco.demo.map;
+
+import android.view.Choreographer;
+
+import com.becomap.sdk.models.BCMapViewOptions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Delivers map camera changes at most once per display frame.
+ *
+ * Gestures report view changes far more often than frames are drawn. Every event only replaces the
+ * pending camera values; they are handed to the consumers on the next frame, so each frame sees the
+ * latest camera once. Values are unboxed as they arrive and delivered as primitives, so nothing is
+ * allocated per event or per frame.
+ *
+ * Events may arrive on any thread. Create the dispatcher and add consumers on the main thread;
+ * consumers are called there.
+ */
+public class ViewChangeDispatcher {
+
+    public interface Consumer {
+        /**
+         * Called with the latest camera, at most once per frame. Values the SDK did not report are
+         * NaN.
+         *
+         * @param timestamp Timestamp of the view change event
+         */
+        void onViewChanged(double latitude, double longitude, double zoom, double bearing, double pitch,
+                           long timestamp);
+    }
+
+    private final Choreographer choreographer = Choreographer.getInstance();
+    private final Choreographer.FrameCallback frameCallback = frameTimeNanos -> dispatch();
+    private final List<Consumer> consumers = new ArrayList<>();
+    private final Object lock = new Object();
+
+    // Pending values, guarded by lock
+    private boolean pending;
+    private double pendingLatitude = Double.NaN;
+    private double pendingLongitude = Double.NaN;
+    private double pendingZoom = Double.NaN;
+    private double pendingBearing = Double.NaN;
+    private double pendingPitch = Double.NaN;
+    private long pendingTimestamp;
+
+    // Last delivered values, main thread only
+    private double latitude = Double.NaN;
+    private double longitude = Double.NaN;
+    private double zoom = Double.NaN;
+    private double bearing = Double.NaN;
+    private double pitch = Double.NaN;
+    private long timestamp;
+
+    public void addConsumer(Consumer consumer) {
+        if (!consumers.contains(consumer)) {
+            consumers.add(consumer);
+        }
+    }
+
+    public void removeConsumer(Consumer consumer) {
+        consumers.remove(consumer);
+    }
+
+    /**
+     * Takes a view change event from the SDK. Cheap enough to call for every event.
+     */
+    public void onViewChange(BCMapViewOptions viewOptions, long eventTimestamp) {
+        if (viewOptions == null) {
+            return;
+        }
+        List<Double> center = viewOptions.getCenter();
+        double newLatitude = Double.NaN;
+        double newLongitude = Double.NaN;
+        if (center != null && center.size() >= 2) {
+            newLatitude = unbox(center.get(0));
+            newLongitude = unbox(center.get(1));
+        }
+        double newZoom = unbox(viewOptions.getZoom());
+        double newBearing = unbox(viewOptions.getBearing());
+        double newPitch = unbox(viewOptions.getPitch());
+
+        boolean schedule;
+        synchronized (lock) {
+            pendingLatitude = newLatitude;
+            pendingLongitude = newLongitude;
+            pendingZoom = newZoom;
+            pendingBearing = newBearing;
+            pendingPitch = newPitch;
+            pendingTimestamp = eventTimestamp;
+            schedule = !pending;
+            pending = true;
+        }
+        if (schedule) {
+            choreographer.postFrameCallback(frameCallback);
+        }
+    }
+
+    /**
+     * Drops a pending change, e.g. when the map goes away.
+     */
+    public void cancel() {
+        synchronized (lock) {
+            pending = false;
+        }
+        choreographer.removeFrameCallback(frameCallback);
+    }
+
+    /**
+     * Delivers the last camera to a consumer added after it was dispatched.
+     *
+     * @return false if no camera has been delivered yet
+     */
+    public boolean replayTo(Consumer consumer) {
+        if (Double.isNaN(latitude) && Double.isNaN(zoom)) {
+            return false;
+        }
+        consumer.onViewChanged(latitude, longitude, zoom, bearing, pitch, timestamp);
+        return true;
+    }
+
+    private void dispatch() {
+        synchronized (lock) {
+            if (!pending) {
+                return;
+            }
+            pending = false;
+            latitude = pendingLatitude;
+            longitude = pendingLongitude;
+            zoom = pendingZoom;
+            bearing = pendingBearing;
+            pitch = pendingPitch;
+            timestamp = pendingTimestamp;
+        }
+        for (int i = 0; i < consumers.size(); i++) {
+            consumers.get(i).onViewChanged(latitude, longitude, zoom, bearing, pitch, timestamp);
+        }
+    }
+
+    private static double unbox(Double value) {
+        return value != null ? value : Double.NaN;
+    }
+}
@@ -0,0 +1,170 @@
+package com.beco.demo.map;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.beco.demo.logging.EventLog;
+import com.beco.demo.logging.LogEvent;
+import com.becomap.sdk.models.BCLocation;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps track of the locations on the floor the map shows.
+ *
+ * The map SDK does not say where a location lies on its floor, so the camera viewport cannot narrow
+ * the set down further. Locations are grouped by floor once, and on a floor change the new floor's
+ * set is compared with the previous one, so listeners only hear about locations that came into or
+ * went out of view. Updates run only while enabled.
+ *
+ * Must be used from the main thread; the grouping is built on a worker thread.
+ */
+public class VisibleLocationsTracker {
+
+    private static final String TAG = "VisibleLocationsTracker";
+    private static final LogEvent GROUPED = LogEvent.debug(TAG, "Grouped %d locations on %d floors");
+
+    public interface Listener {
+        /**
+         * @param added Locations that came into view, in site order
+         * @param removed Locations that went out of view
+         */
+        void onVisibleLocationsChanged(List<BCLocation> added, List<BCLocation> removed);
+    }
+
+    /**
+     * The site's locations and, per floor, the indices of those on it.
+     */
+    private static final class FloorIndex {
+        final List<BCLocation> locations;
+        final Map<String, BitSet> floors = new HashMap<>();
+
+        FloorIndex(List<BCLocation> locations) {
+            this.locations = locations;
+            for (int i = 0; i < locations.size(); i++) {
+                String floorId = locations.get(i).getFloorId();
+                if (floorId == null) {
+                    continue;
+                }
+                BitSet onFloor = floors.get(floorId);
+                if (onFloor == null) {
+                    onFloor = new BitSet();
+                    floors.put(floorId, onFloor);
+                }
+                onFloor.set(i);
+            }
+        }
+    }
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private Listener listener;
+    private FloorIndex index;
+    private String floorId;
+    private boolean enabled;
+    private int generation;
+
+    // Reused between updates
+    private BitSet visible = new BitSet();
+    private BitSet previous = new BitSet();
+    private final BitSet changed = new BitSet();
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Groups the site's locations by floor; the visible set is recomputed once that is done.
+     */
+    public void setLocations(List<BCLocation> locations) {
+        final int buildGeneration = ++generation;
+        final List<BCLocation> snapshot = locations != null
+                ? Collections.unmodifiableList(new ArrayList<>(locations))
+                : Collections.<BCLocation>emptyList();
+        executor.execute(() -> {
+            final FloorIndex built = new FloorIndex(snapshot);
+            EventLog.log(GROUPED, snapshot.size(), built.floors.size());
+            mainHandler.post(() -> {
+                if (buildGeneration == generation) {
+                    setIndex(built);
+                }
+            });
+        });
+    }
+
+    public void setFloor(String floorId) {
+        this.floorId = floorId;
+        update();
+    }
+
+    /**
+     * Starts or stops updating. Disabling forgets the visible set without reporting it; listeners
+     * start over from an empty set.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (enabled) {
+            update();
+        } else {
+            previous.clear();
+        }
+    }
+
+    public void shutdown() {
+        generation++;
+        executor.shutdown();
+    }
+
+    private void setIndex(FloorIndex index) {
+        // Indices of the old grouping mean nothing in the new one - everything goes out of view
+        if (!previous.isEmpty() && listener != null) {
+            visible.clear();
+            listener.onVisibleLocationsChanged(Collections.<BCLocation>emptyList(), difference(previous, visible));
+        }
+        previous.clear();
+        this.index = index;
+        update();
+    }
+
+    private void update() {
+        if (!enabled || index == null) {
+            return;
+        }
+        visible.clear();
+        BitSet onFloor = floorId != null ? index.floors.get(floorId) : null;
+        if (onFloor != null) {
+            visible.or(onFloor);
+        }
+
+        if (!visible.equals(previous) && listener != null) {
+            listener.onVisibleLocationsChanged(difference(visible, previous), difference(previous, visible));
+        }
+        BitSet swap = previous;
+        previous = visible;
+        visible = swap;
+    }
+
+    /**
+     * @return The locations in {@code a} but not in {@code b}
+     */
+    private List<BCLocation> difference(BitSet a, BitSet b) {
+        changed.clear();
+        changed.or(a);
+        changed.andNot(b);
+        if (changed.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<BCLocation> result = new ArrayList<>(changed.cardinality());
+        for (int i = changed.nextSetBit(0); i >= 0; i = changed.nextSetBit(i + 1)) {
+            result.add(index.locations.get(i));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,468 @@
+package com.beco.demo.routing;
+
+import com.becomap.sdk.models.BCLocation;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Calculates walking distance/time matrices between N sources and M destinations.
+ *
+ * Each distinct pair is requested once: the diagonal is free, pairs already in the metrics cache
+ * are filled in immediately, pairs needed by several cells or batches share a single request and,
+ * when walking is treated as symmetric, A to B and B to A are one pair. A symmetric pair is only
+ * requested in one direction; its result stands in for the other direction when it is
+ * {@link RouteMetrics#isReversible() reversible}, and otherwise the other direction is requested
+ * as well, so one-way connectors such as escalators are still measured both ways. The remaining
+ * pairs are fanned out to the {@link RouteMetricsProvider} with at most {@code maxConcurrent}
+ * requests outstanding; the rest wait in their batch and are issued only as requests complete. At
+ * most {@code maxPendingBatches} batches may wait at a time; further submissions are refused.
+ *
+ * The service is itself a {@link RouteMetricsProvider}: a single pair is calculated as a one-cell
+ * batch, so it shares the cache and in-flight requests of the matrices.
+ *
+ * Thread safe. Batch callbacks run on whichever thread completed the batch's last pair, or on the
+ * submitting thread if every pair was already known.
+ */
+public class BatchRouteService implements RouteMetricsProvider {
+
+    public static final int DEFAULT_MAX_CONCURRENT = 2;
+    public static final int DEFAULT_MAX_PENDING_BATCHES = 8;
+    private static final int MAX_CACHED_PAIRS = 1024;
+
+    public interface Callback {
+        void onMatrixReady(RouteMatrix matrix);
+    }
+
+    private final RouteMetricsProvider provider;
+    private final int maxConcurrent;
+    private final int maxPendingBatches;
+    private final boolean symmetric;
+
+    private final Object lock = new Object();
+    private final LinkedHashMap<RouteKey, RouteMetrics> metricsCache =
+            new LinkedHashMap<RouteKey, RouteMetrics>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<RouteKey, RouteMetrics> eldest) {
+                    return size() > MAX_CACHED_PAIRS;
+                }
+            };
+    private final ArrayDeque<Batch> batches = new ArrayDeque<>();
+    private final Map<RouteKey, List<Pair>> inFlight = new HashMap<>();
+    private final List<Batch> completed = new ArrayList<>();
+    private int outstanding;
+    private boolean pumping;
+
+    private int requestCount;
+    private int sharedCount;
+
+    /**
+     * Creates a service with default limits that treats walking as symmetric where routes are
+     * reversible.
+     */
+    public BatchRouteService(RouteMetricsProvider provider) {
+        this(provider, DEFAULT_MAX_CONCURRENT, DEFAULT_MAX_PENDING_BATCHES, true);
+    }
+
+    /**
+     * @param provider Source of pair metrics
+     * @param maxConcurrent Maximum number of provider requests outstanding at once
+     * @param maxPendingBatches Maximum number of batches waiting for results
+     * @param symmetric Whether a reversible A to B may stand in for B to A
+     */
+    public BatchRouteService(RouteMetricsProvider provider, int maxConcurrent, int maxPendingBatches,
+                             boolean symmetric) {
+        if (maxConcurrent <= 0 || maxPendingBatches <= 0) {
+            throw new IllegalArgumentException("Limits must be positive");
+        }
+        this.provider = provider;
+        this.maxConcurrent = maxConcurrent;
+        this.maxPendingBatches = maxPendingBatches;
+        this.symmetric = symmetric;
+    }
+
+    /**
+     * @return true if a batch submitted now would be accepted
+     */
+    public boolean hasCapacity() {
+        synchronized (lock) {
+            return batches.size() < maxPendingBatches;
+        }
+    }
+
+    /**
+     * Submits a matrix calculation.
+     *
+     * @param sources Row locations
+     * @param destinations Column locations
+     * @param callback Receives the complete matrix
+     * @return A handle to cancel the batch
+     * @throws IllegalStateException if {@code maxPendingBatches} batches are already waiting
+     */
+    public Batch submit(List<BCLocation> sources, List<BCLocation> destinations, Callback callback) {
+        Batch batch = new Batch(sources, destinations, callback);
+        enqueue(batch);
+        return batch;
+    }
+
+    /**
+     * Calculates one pair as a one-cell batch. A pair that cannot be calculated now, including
+     * when the service is saturated, is reported through {@link RouteMetricsProvider.Callback#onFailed()}.
+     */
+    @Override
+    public void requestMetrics(BCLocation source, BCLocation destination,
+                               final RouteMetricsProvider.Callback callback) {
+        if (!hasCapacity()) {
+            callback.onFailed();
+            return;
+        }
+        final Batch[] batch = new Batch[1];
+        batch[0] = new Batch(Collections.singletonList(source), Collections.singletonList(destination),
+                matrix -> {
+                    if (batch[0].failed) {
+                        callback.onFailed();
+                    } else if (!matrix.isReachable(0, 0)) {
+                        callback.onMetrics(RouteMetrics.UNREACHABLE);
+                    } else {
+                        callback.onMetrics(new RouteMetrics(matrix.getDistance(0, 0), matrix.getDuration(0, 0)));
+                    }
+                });
+        enqueue(batch[0]);
+    }
+
+    private void enqueue(Batch batch) {
+        boolean complete;
+        synchronized (lock) {
+            if (batches.size() >= maxPendingBatches) {
+                throw new IllegalStateException("Batch route service is saturated");
+            }
+            batch.plan();
+            complete = batch.remaining == 0;
+            if (!complete) {
+                batches.add(batch);
+            }
+        }
+        if (complete) {
+            batch.finish();
+        } else {
+            pump();
+        }
+    }
+
+    /**
+     * Drops cached pair metrics, e.g. when site data changes.
+     */
+    public void invalidate() {
+        synchronized (lock) {
+            metricsCache.clear();
+        }
+    }
+
+    /**
+     * @return Number of pair requests sent to the provider so far
+     */
+    public int getRequestCount() {
+        synchronized (lock) {
+            return requestCount;
+        }
+    }
+
+    /**
+     * @return Number of pairs answered by the cache or by another cell's request
+     */
+    public int getSharedCount() {
+        synchronized (lock) {
+            return sharedCount;
+        }
+    }
+
+    /**
+     * Issues pair requests while below the concurrency limit. A call made while another thread (or
+     * a synchronous provider further up the stack) is pumping returns at once; the active pump
+     * re-examines the state on its next round, so the stack stays flat.
+     */
+    private void pump() {
+        synchronized (lock) {
+            if (pumping) {
+                return;
+            }
+            pumping = true;
+        }
+        while (true) {
+            List<Pair> toIssue = new ArrayList<>();
+            List<Batch> done;
+            synchronized (lock) {
+                while (outstanding < maxConcurrent) {
+                    Pair next = nextPair();
+                    if (next == null) {
+                        break;
+                    }
+                    List<Pair> waiters = new ArrayList<>(1);
+                    waiters.add(next);
+                    inFlight.put(next.key, waiters);
+                    outstanding++;
+                    requestCount++;
+                    toIssue.add(next);
+                }
+                done = drainCompleted();
+                if (toIssue.isEmpty() && done.isEmpty()) {
+                    pumping = false;
+                    return;
+                }
+            }
+            for (Batch batch : done) {
+                batch.finish();
+            }
+            for (Pair pair : toIssue) {
+                issue(pair);
+            }
+        }
+    }
+
+    /**
+     * Takes the next pair that needs a request, resolving cached and in-flight pairs on the way.
+     * Called with the lock held.
+     */
+    private Pair nextPair() {
+        Iterator<Batch> batchIt = batches.iterator();
+        while (batchIt.hasNext()) {
+            Batch batch = batchIt.next();
+            while (!batch.unissued.isEmpty()) {
+                Pair pair = batch.unissued.poll();
+                RouteMetrics cached = cachedMetrics(pair.source, pair.destination);
+                if (cached != null) {
+                    sharedCount++;
+                    batch.fill(pair, cached);
+                    continue;
+                }
+                List<Pair> waiters = inFlight.get(pair.key);
+                if (waiters != null) {
+                    sharedCount++;
+                    waiters.add(pair);
+                    continue;
+                }
+                return pair;
+            }
+            if (batch.remaining == 0) {
+                batchIt.remove();
+                completed.add(batch);
+            }
+        }
+        return null;
+    }
+
+    private void issue(final Pair pair) {
+        provider.requestMetrics(pair.source, pair.destination, new RouteMetricsProvider.Callback() {
+            @Override
+            public void onMetrics(RouteMetrics metrics) {
+                onPairSettled(pair.key, metrics != null ? metrics : RouteMetrics.UNREACHABLE, true);
+            }
+
+            @Override
+            public void onFailed() {
+                onPairSettled(pair.key, RouteMetrics.UNREACHABLE, false);
+            }
+        });
+    }
+
+    private void onPairSettled(RouteKey key, RouteMetrics metrics, boolean cacheable) {
+        List<Batch> done;
+        synchronized (lock) {
+            outstanding--;
+            if (cacheable) {
+                metricsCache.put(key, metrics);
+            }
+            List<Pair> waiters = inFlight.remove(key);
+            if (waiters != null) {
+                for (Pair waiter : waiters) {
+                    if (!waiter.batch.cancelled) {
+                        waiter.batch.failed |= !cacheable;
+                        waiter.batch.fill(waiter, metrics);
+                    }
+                }
+            }
+            Iterator<Batch> it = batches.iterator();
+            while (it.hasNext()) {
+                Batch batch = it.next();
+                if (batch.remaining == 0) {
+                    it.remove();
+                    completed.add(batch);
+                }
+            }
+            done = drainCompleted();
+        }
+        for (Batch batch : done) {
+            batch.finish();
+        }
+        pump();
+    }
+
+    /**
+     * Takes the batches that have all their cells filled. Lock held.
+     */
+    private List<Batch> drainCompleted() {
+        if (completed.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Batch> out = new ArrayList<>(completed);
+        completed.clear();
+        return out;
+    }
+
+    /**
+     * Looks up cached metrics from {@code source} to {@code destination}, including a reversible
+     * reverse pair when walking is symmetric. Lock held.
+     */
+    private RouteMetrics cachedMetrics(BCLocation source, BCLocation destination) {
+        RouteMetrics cached =
+                metricsCache.get(RouteKey.of(source, destination, null, RouteKey.DEFAULT_OPTIONS));
+        if (cached == null && symmetric) {
+            RouteMetrics reverse =
+                    metricsCache.get(RouteKey.of(destination, source, null, RouteKey.DEFAULT_OPTIONS));
+            if (reverse != null && reverse.isReversible()) {
+                cached = reverse;
+            }
+        }
+        return cached;
+    }
+
+    /**
+     * One distinct pair of a batch and the matrix cells it answers: {@code cells} in the requested
+     * direction and {@code reverseCells} in the other one.
+     */
+    private static final class Pair {
+        final Batch batch;
+        final RouteKey key;
+        final BCLocation source;
+        final BCLocation destination;
+        final List<int[]> cells = new ArrayList<>(1);
+        final List<int[]> reverseCells = new ArrayList<>(1);
+
+        Pair(Batch batch, RouteKey key, BCLocation source, BCLocation destination) {
+            this.batch = batch;
+            this.key = key;
+            this.source = source;
+            this.destination = destination;
+        }
+    }
+
+    /**
+     * A submitted matrix calculation.
+     */
+    public final class Batch {
+        private final List<BCLocation> sources;
+        private final List<BCLocation> destinations;
+        private final Callback callback;
+        private final RouteMatrix matrix;
+        private final ArrayDeque<Pair> unissued = new ArrayDeque<>();
+        private int remaining;
+        private boolean cancelled;
+        private boolean finished;
+        private boolean failed;
+
+        Batch(List<BCLocation> sources, List<BCLocation> destinations, Callback callback) {
+            this.sources = new ArrayList<>(sources);
+            this.destinations = new ArrayList<>(destinations);
+            this.callback = callback;
+            this.matrix = new RouteMatrix(sources.size(), destinations.size());
+        }
+
+        /**
+         * Stops the batch. Pair requests already sent still complete and are cached, but the
+         * callback is not invoked.
+         */
+        public void cancel() {
+            synchronized (lock) {
+                cancelled = true;
+                unissued.clear();
+                batches.remove(this);
+            }
+        }
+
+        public boolean isCancelled() {
+            synchronized (lock) {
+                return cancelled;
+            }
+        }
+
+        /**
+         * Groups the cells into distinct pairs and fills what is already known. Lock held.
+         */
+        void plan() {
+            Map<RouteKey, Pair> pairs = new LinkedHashMap<>();
+            for (int r = 0; r < sources.size(); r++) {
+                BCLocation source = sources.get(r);
+                for (int c = 0; c < destinations.size(); c++) {
+                    BCLocation destination = destinations.get(c);
+                    if (source.getId().equals(destination.getId())) {
+                        matrix.set(r, c, 0, 0);
+                        continue;
+                    }
+                    RouteMetrics cached = cachedMetrics(source, destination);
+                    if (cached != null) {
+                        sharedCount++;
+                        matrix.set(r, c, cached.getDistanceMeters(), cached.getDurationSeconds());
+                        continue;
+                    }
+                    boolean flip = symmetric && source.getId().compareTo(destination.getId()) > 0;
+                    BCLocation from = flip ? destination : source;
+                    BCLocation to = flip ? source : destination;
+                    RouteKey key = RouteKey.of(from, to, null, RouteKey.DEFAULT_OPTIONS);
+
+                    Pair pair = pairs.get(key);
+                    if (pair == null) {
+                        pair = new Pair(this, key, from, to);
+                        pairs.put(key, pair);
+                    } else {
+                        sharedCount++;
+                    }
+                    (flip ? pair.reverseCells : pair.cells).add(new int[]{r, c});
+                    remaining++;
+                }
+            }
+            unissued.addAll(pairs.values());
+        }
+
+        /**
+         * Fills the pair's cells. Reverse cells the metrics do not hold for become a pair of their
+         * own, requested in their direction. Lock held.
+         */
+        void fill(Pair pair, RouteMetrics metrics) {
+            fillCells(pair.cells, metrics);
+            if (pair.reverseCells.isEmpty()) {
+                return;
+            }
+            if (metrics.isReversible()) {
+                fillCells(pair.reverseCells, metrics);
+                return;
+            }
+            RouteKey key = RouteKey.of(pair.destination, pair.source, null, RouteKey.DEFAULT_OPTIONS);
+            Pair reverse = new Pair(this, key, pair.destination, pair.source);
+            reverse.cells.addAll(pair.reverseCells);
+            unissued.add(reverse);
+        }
+
+        private void fillCells(List<int[]> cells, RouteMetrics metrics) {
+            for (int[] cell : cells) {
+                matrix.set(cell[0], cell[1], metrics.getDistanceMeters(), metrics.getDurationSeconds());
+                remaining--;
+            }
+        }
+
+        void finish() {
+            synchronized (lock) {
+                if (cancelled || finished) {
+                    return;
+                }
+                finished = true;
+            }
+            callback.onMatrixReady(matrix);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.beco.demo.routing;
+
+/**
+ * The part of a route on one floor: where it lies in the route and which floors the route comes
+ * from and goes on to.
+ */
+public final class FloorSegment {
+
+    private final String floorId;
+    private final int index;
+    private final int count;
+    private final String previousFloorId;
+    private final String nextFloorId;
+
+    FloorSegment(String floorId, int index, int count, String previousFloorId, String nextFloorId) {
+        this.floorId = floorId;
+        this.index = index;
+        this.count = count;
+        this.previousFloorId = previousFloorId;
+        this.nextFloorId = nextFloorId;
+    }
+
+    public String getFloorId() {
+        return floorId;
+    }
+
+    /**
+     * @return Position of the segment within the route, starting at 0
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public boolean isFirst() {
+        return index == 0;
+    }
+
+    public boolean isLast() {
+        return index == count - 1;
+    }
+
+    /**
+     * @return The floor the route comes from onto this one, null for the first segment
+     */
+    public String getPreviousFloorId() {
+        return previousFloorId;
+    }
+
+    /**
+     * @return The floor the route goes on to from this one, null for the last segment
+     */
+    public String getNextFloorId() {
+        return nextFloorId;
+    }
+
+    /**
+     * @return "Start", "Destination" or "" for a floor the route passes through
+     */
+    public String getSummary() {
+        if (isFirst()) {
+            return "Start";
+        }
+        return isLast() ? "Destination" : "";
+    }
+}
@@ -0,0 +1,71 @@
+package com.beco.demo.routing;
+
+import com.becomap.sdk.models.BCRoute;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits routes into per-floor {@link FloorSegment}s.
+ *
+ * Segments come from {@code BCRoute.getInvolvedFloors()}, the floors in the order the route visits
+ * them. The SDK does not break its distance or time down by floor, so segments carry neither.
+ * Each route is broken down once; the result is cached for the route object.
+ *
+ * Must be used from the main thread.
+ */
+public class FloorSegmentCalculator {
+
+    private static final int MAX_CACHED_ROUTES = 16;
+
+    private final Map<BCRoute, List<FloorSegment>> cache =
+            new LinkedHashMap<BCRoute, List<FloorSegment>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<BCRoute, List<FloorSegment>> eldest) {
+                    return size() > MAX_CACHED_ROUTES;
+                }
+            };
+
+    /**
+     * @return The segments of {@code route} in walking order, empty if it has no floor information
+     */
+    public List<FloorSegment> calculate(BCRoute route) {
+        List<FloorSegment> segments = cache.get(route);
+        if (segments == null) {
+            segments = breakDown(route);
+            cache.put(route, segments);
+        }
+        return segments;
+    }
+
+    /**
+     * Makes one segment per involved floor. Consecutive repeats of a floor are one segment.
+     *
+     * @return The segments in walking order, empty if the route has no floor information
+     */
+    public static List<FloorSegment> breakDown(BCRoute route) {
+        List<String> involved = route.getInvolvedFloors();
+        if (involved == null || involved.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<String> floors = new ArrayList<>(involved.size());
+        for (String floorId : involved) {
+            if (floorId != null && (floors.isEmpty() || !floorId.equals(floors.get(floors.size() - 1)))) {
+                floors.add(floorId);
+            }
+        }
+
+        int count = floors.size();
+        List<FloorSegment> segments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            segments.add(new FloorSegment(floors.get(i), i, count,
+                    i > 0 ? floors.get(i - 1) : null,
+                    i + 1 < count ? floors.get(i + 1) : null));
+        }
+        return Collections.unmodifiableList(segments);
+    }
+}
@@ -0,0 +1,315 @@
+package com.beco.demo.routing;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.becomap.sdk.models.BCCategory;
+import com.becomap.sdk.models.BCLocation;
+import com.becomap.sdk.models.BCRoute;
+import com.becomap.sdk.models.BCRouteErrorCode;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Background job that fills the {@link HubRouteTable} with routes from the hubs trips start at
+ * (entrances, parking, elevators) to the top destinations (anchor stores and the other hubs).
+ * Both sets are capped, so a site costs at most {@link #MAX_HUBS} x {@link #MAX_DESTINATIONS}
+ * routes, once per site version.
+ *
+ * The stored table for the current site version is loaded first, so only missing pairs are
+ * calculated. Every route replaces the map engine's route set, so pairs are only requested while
+ * the user is idle - no interaction for {@link #IDLE_DELAY_MS} - and the route coordinator is
+ * idle, which also means no route is held on screen. One pair is requested at a time, and the job
+ * yields to the main looper between pairs. Progress is saved every {@link #CHECKPOINT_INTERVAL}
+ * routes and when the job finishes or stops. Disk access runs on a single worker thread;
+ * everything else runs on the main thread.
+ */
+public class HubRoutePrecomputer {
+
+    private static final String TAG = "HubRoutePrecomputer";
+    private static final int MAX_HUBS = 8;
+    private static final int MAX_DESTINATIONS = 16;
+    private static final int CHECKPOINT_INTERVAL = 50;
+    private static final long IDLE_DELAY_MS = 10_000;
+    private static final String[] HUB_KEYWORDS = {"entrance", "parking", "elevator", "lift"};
+    private static final String ANCHOR_KEYWORD = "anchor";
+
+    private final RouteRequestCoordinator coordinator;
+    private final File file;
+    private final ExecutorService diskExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable nextPair = this::next;
+    private final Runnable idleCheck = this::checkIdle;
+
+    private final Deque<BCLocation[]> queue = new ArrayDeque<>();
+    private volatile HubRouteTable table;
+    private HubRouteTable preloaded;
+    private int generation;
+    private boolean requestInFlight;
+    private int unsavedCount;
+    private long lastUserActivity = SystemClock.uptimeMillis();
+    private boolean idleCheckPosted;
+
+    /**
+     * @param coordinator Route coordinator whose background lane calculates the pairs
+     * @param file Where the table is stored
+     */
+    public HubRoutePrecomputer(RouteRequestCoordinator coordinator, File file) {
+        this.coordinator = coordinator;
+        this.file = file;
+    }
+
+    /**
+     * @return The precomputed summary for the pair, or null if it is not in the table (yet)
+     */
+    public RouteSummary lookup(BCLocation source, BCLocation destination) {
+        HubRouteTable current = table;
+        if (current == null || source == null || destination == null
+                || source.getId() == null || destination.getId() == null) {
+            return null;
+        }
+        return current.get(source, destination);
+    }
+
+    /**
+     * Hands over a table read ahead of time, e.g. during app startup. The next {@link #start} uses
+     * it instead of reading the file if it is for the same site version.
+     */
+    public void setPreloaded(HubRouteTable table) {
+        this.preloaded = table;
+    }
+
+    /**
+     * Loads the table for {@code siteVersion} and calculates the hub routes it is missing.
+     * Restarting with new site data abandons the previous run.
+     */
+    public void start(final String siteVersion, List<BCLocation> locations) {
+        stop();
+        table = null; // Summaries of other site data must not be served meanwhile
+        final int startGeneration = generation;
+        final List<BCLocation> snapshot = locations != null
+                ? new ArrayList<>(locations) : new ArrayList<BCLocation>();
+        final HubRouteTable readAhead = preloaded != null && siteVersion.equals(preloaded.getSiteVersion())
+                ? preloaded : null;
+        preloaded = null;
+        diskExecutor.execute(() -> {
+            final HubRouteTable loaded = readAhead != null ? readAhead : HubRouteTable.read(file, siteVersion);
+            mainHandler.post(() -> {
+                if (startGeneration != generation) {
+                    return; // Restarted or stopped while loading
+                }
+                table = loaded;
+                enqueueMissing(snapshot);
+                next();
+            });
+        });
+    }
+
+    /**
+     * Holds the job back until the user has been idle for {@link #IDLE_DELAY_MS}. Call on every
+     * user interaction.
+     */
+    public void onUserActivity() {
+        lastUserActivity = SystemClock.uptimeMillis();
+        postIdleCheck(IDLE_DELAY_MS);
+    }
+
+    /**
+     * Continues the job once the route coordinator has nothing else to do. Call from the
+     * coordinator's idle callback.
+     */
+    public void onRouteChannelIdle() {
+        if (!queue.isEmpty() && !requestInFlight) {
+            // Yield to the looper first, so anything the idle callback caused runs before the pair
+            mainHandler.removeCallbacks(nextPair);
+            mainHandler.post(nextPair);
+        }
+    }
+
+    /**
+     * Stops calculating and saves what has been calculated so far. The table stays available for
+     * lookups. A pair already requested still completes, but its result is dropped.
+     */
+    public void stop() {
+        generation++;
+        queue.clear();
+        mainHandler.removeCallbacks(nextPair);
+        checkpoint();
+    }
+
+    /**
+     * Stops the job and releases its worker thread.
+     */
+    public void shutdown() {
+        stop();
+        mainHandler.removeCallbacks(idleCheck);
+        idleCheckPosted = false;
+        diskExecutor.shutdown();
+    }
+
+    private void enqueueMissing(List<BCLocation> locations) {
+        List<BCLocation> hubs = findHubs(locations);
+        List<BCLocation> destinations = findDestinations(locations, hubs);
+        for (BCLocation hub : hubs) {
+            for (BCLocation destination : destinations) {
+                if (destination.getId().equals(hub.getId())) {
+                    continue;
+                }
+                if (!table.contains(RouteKey.of(hub, destination, null, RouteKey.DEFAULT_OPTIONS))) {
+                    queue.add(new BCLocation[]{hub, destination});
+                }
+            }
+        }
+        Log.d(TAG, hubs.size() + " hubs, " + destinations.size() + " destinations, "
+                + table.size() + " routes stored, " + queue.size() + " to calculate");
+    }
+
+    private void next() {
+        if (requestInFlight || queue.isEmpty()) {
+            return;
+        }
+        if (!coordinator.isIdle()) {
+            return; // onRouteChannelIdle continues
+        }
+        long idleFor = SystemClock.uptimeMillis() - lastUserActivity;
+        if (idleFor < IDLE_DELAY_MS) {
+            postIdleCheck(IDLE_DELAY_MS - idleFor);
+            return;
+        }
+        final BCLocation[] pair = queue.poll();
+        final int requestGeneration = generation;
+        requestInFlight = true;
+        coordinator.requestRoute(pair[0], pair[1], new RouteProvider.Callback() {
+            @Override
+            public void onRouteCalculated(List<BCRoute> routes) {
+                // The flag stays set until the engine has answered, even across a restart, so two
+                // pairs never overlap on the engine
+                requestInFlight = false;
+                if (requestGeneration != generation) {
+                    return;
+                }
+                if (routes != null && !routes.isEmpty()) {
+                    table.put(RouteKey.of(pair[0], pair[1], null, RouteKey.DEFAULT_OPTIONS),
+                            RouteSummary.of(routes.get(0)));
+                    if (++unsavedCount >= CHECKPOINT_INTERVAL) {
+                        checkpoint();
+                    }
+                }
+                if (queue.isEmpty()) {
+                    checkpoint();
+                }
+            }
+
+            @Override
+            public void onRouteFailed(BCRouteErrorCode errorCode) {
+                requestInFlight = false;
+                // Unreachable pairs are left out of the table and fall back to a live route
+            }
+        });
+    }
+
+    private void postIdleCheck(long delayMs) {
+        if (!idleCheckPosted && !queue.isEmpty()) {
+            idleCheckPosted = true;
+            mainHandler.postDelayed(idleCheck, delayMs);
+        }
+    }
+
+    private void checkIdle() {
+        idleCheckPosted = false;
+        next(); // Posts the check again if the user was active meanwhile
+    }
+
+    private void checkpoint() {
+        final HubRouteTable current = table;
+        if (current == null || unsavedCount == 0) {
+            return;
+        }
+        unsavedCount = 0;
+        diskExecutor.execute(() -> {
+            try {
+                current.write(file);
+                Log.d(TAG, "Saved " + current.size() + " hub routes");
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to save hub route table", e);
+            }
+        });
+    }
+
+    /**
+     * Picks the locations most trips start from: entrances, parking and elevators.
+     */
+    static List<BCLocation> findHubs(List<BCLocation> locations) {
+        List<BCLocation> hubs = new ArrayList<>();
+        for (BCLocation location : locations) {
+            if (hubs.size() >= MAX_HUBS) {
+                break;
+            }
+            if (location.getId() != null && isHub(location)) {
+                hubs.add(location);
+            }
+        }
+        return hubs;
+    }
+
+    /**
+     * Picks the locations most trips end at: anchor stores first, then the hubs themselves.
+     */
+    static List<BCLocation> findDestinations(List<BCLocation> locations, List<BCLocation> hubs) {
+        List<BCLocation> destinations = new ArrayList<>();
+        for (BCLocation location : locations) {
+            if (destinations.size() >= MAX_DESTINATIONS) {
+                return destinations;
+            }
+            if (location.getId() != null && isAnchor(location)) {
+                destinations.add(location);
+            }
+        }
+        for (BCLocation hub : hubs) {
+            if (destinations.size() >= MAX_DESTINATIONS) {
+                break;
+            }
+            destinations.add(hub);
+        }
+        return destinations;
+    }
+
+    private static boolean isHub(BCLocation location) {
+        return containsKeyword(location.getAmenity()) || containsKeyword(location.getName());
+    }
+
+    private static boolean isAnchor(BCLocation location) {
+        if (location.getCategories() != null) {
+            for (BCCategory category : location.getCategories()) {
+                String name = category.getName();
+                if (name != null && name.toLowerCase(Locale.ROOT).contains(ANCHOR_KEYWORD)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean containsKeyword(String text) {
+        if (text == null) {
+            return false;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        for (String keyword : HUB_KEYWORDS) {
+            if (lower.contains(keyword)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,224 @@
+package com.beco.demo.routing;
+
+import android.util.Log;
+
+import com.becomap.sdk.models.BCLocation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Precomputed route summaries from the site's hubs (entrances, parking, elevators, anchor stores)
+ * to its locations, persisted per site version.
+ *
+ * On disk the table is a gzipped string pool followed by fixed-width entries that refer to it, so
+ * the few distinct floor IDs and formatted values are stored once. A file written for another site
+ * version, or in another format, is ignored on load.
+ *
+ * Thread safe: lookups run on the main thread while the file is read and written on a worker.
+ */
+public class HubRouteTable {
+
+    private static final String TAG = "HubRouteTable";
+    private static final int MAGIC = 0x48554252; // "HUBR"
+    private static final int FORMAT_VERSION = 1;
+
+    private final String siteVersion;
+    private final Map<RouteKey, RouteSummary> entries = new HashMap<>();
+
+    public HubRouteTable(String siteVersion) {
+        this.siteVersion = siteVersion;
+    }
+
+    /**
+     * Derives a version for the loaded site data. Any change to the site's locations or their
+     * floors yields a new version, which retires tables computed for the old data.
+     */
+    public static String siteVersionOf(String siteName, List<BCLocation> locations) {
+        CRC32 crc = new CRC32();
+        update(crc, siteName);
+        if (locations != null) {
+            for (BCLocation location : locations) {
+                update(crc, location.getId());
+                update(crc, location.getFloorId());
+            }
+        }
+        int count = locations != null ? locations.size() : 0;
+        return Long.toHexString(crc.getValue()) + "-" + count;
+    }
+
+    private static void update(CRC32 crc, String value) {
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                crc.update(c >>> 8);
+                crc.update(c);
+            }
+        }
+        crc.update(0);
+    }
+
+    public String getSiteVersion() {
+        return siteVersion;
+    }
+
+    /**
+     * @return The summary for a hub route without waypoints or options, or null if not in the table
+     */
+    public RouteSummary get(BCLocation source, BCLocation destination) {
+        RouteKey key = RouteKey.of(source, destination, null, RouteKey.DEFAULT_OPTIONS);
+        synchronized (entries) {
+            return entries.get(key);
+        }
+    }
+
+    public boolean contains(RouteKey key) {
+        synchronized (entries) {
+            return entries.containsKey(key);
+        }
+    }
+
+    public void put(RouteKey key, RouteSummary summary) {
+        synchronized (entries) {
+            entries.put(key, summary);
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Reads the table stored in {@code file}.
+     *
+     * @param siteVersion The site version the table must be for, or null to take the stored table
+     *                    whatever its version, e.g. to read it before the site data is known
+     * @return The stored table, or an empty one if the file is missing, unreadable or belongs to
+     *         another site version
+     */
+    public static HubRouteTable read(File file, String siteVersion) {
+        HubRouteTable table = new HubRouteTable(siteVersion);
+        if (!file.exists()) {
+            return table;
+        }
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(
+                new BufferedInputStream(new FileInputStream(file))))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                Log.w(TAG, "Ignoring hub route table in unknown format");
+                return table;
+            }
+            String storedVersion = in.readUTF();
+            if (siteVersion == null) {
+                table = new HubRouteTable(storedVersion);
+            } else if (!storedVersion.equals(siteVersion)) {
+                Log.d(TAG, "Hub route table is for site version " + storedVersion + ", need " + siteVersion);
+                return table;
+            }
+
+            String[] pool = new String[in.readInt()];
+            for (int i = 0; i < pool.length; i++) {
+                pool[i] = in.readUTF();
+            }
+            int entryCount = in.readInt();
+            for (int i = 0; i < entryCount; i++) {
+                String sourceId = pool[in.readInt()];
+                String destinationId = pool[in.readInt()];
+                String distance = string(pool, in.readInt());
+                String time = string(pool, in.readInt());
+                int floorCount = in.readUnsignedByte();
+                List<String> floors = new ArrayList<>(floorCount);
+                for (int f = 0; f < floorCount; f++) {
+                    floors.add(string(pool, in.readInt()));
+                }
+                table.entries.put(new RouteKey(sourceId, destinationId, null, RouteKey.DEFAULT_OPTIONS),
+                        new RouteSummary(distance, time, floors));
+            }
+            Log.d(TAG, "Loaded " + entryCount + " hub routes for site version " + table.siteVersion);
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Failed to read hub route table, starting over", e);
+            table.entries.clear();
+        }
+        return table;
+    }
+
+    /**
+     * Writes the table to {@code file}, replacing it atomically.
+     */
+    public void write(File file) throws IOException {
+        Map<RouteKey, RouteSummary> snapshot;
+        synchronized (entries) {
+            snapshot = new HashMap<>(entries);
+        }
+
+        Map<String, Integer> pool = new LinkedHashMap<>();
+        for (Map.Entry<RouteKey, RouteSummary> entry : snapshot.entrySet()) {
+            intern(pool, entry.getKey().getSourceId());
+            intern(pool, entry.getKey().getDestinationId());
+            intern(pool, entry.getValue().getFormattedDistance());
+            intern(pool, entry.getValue().getFormattedTime());
+            for (String floor : entry.getValue().getInvolvedFloors()) {
+                intern(pool, floor);
+            }
+        }
+
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp))))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(siteVersion);
+            out.writeInt(pool.size());
+            for (String value : pool.keySet()) {
+                out.writeUTF(value);
+            }
+            out.writeInt(snapshot.size());
+            for (Map.Entry<RouteKey, RouteSummary> entry : snapshot.entrySet()) {
+                RouteSummary summary = entry.getValue();
+                out.writeInt(pool.get(entry.getKey().getSourceId()));
+                out.writeInt(pool.get(entry.getKey().getDestinationId()));
+                out.writeInt(index(pool, summary.getFormattedDistance()));
+                out.writeInt(index(pool, summary.getFormattedTime()));
+                List<String> floors = summary.getInvolvedFloors();
+                int floorCount = Math.min(floors.size(), 255);
+                out.writeByte(floorCount);
+                for (int f = 0; f < floorCount; f++) {
+                    out.writeInt(index(pool, floors.get(f)));
+                }
+            }
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Could not replace " + file);
+        }
+    }
+
+    private static void intern(Map<String, Integer> pool, String value) {
+        if (value != null && !pool.containsKey(value)) {
+            pool.put(value, pool.size());
+        }
+    }
+
+    private static int index(Map<String, Integer> pool, String value) {
+        return value != null ? pool.get(value) : -1;
+    }
+
+    private static String string(String[] pool, int index) {
+        return index >= 0 ? pool[index] : null;
+    }
+}
@@ -0,0 +1,114 @@
+package com.beco.demo.routing;
+
+/**
+ * Orders the stops of an itinerary to keep the total walking cost low.
+ *
+ * The path is open: it starts at a fixed node, visits every other node once and ends wherever is
+ * cheapest. A nearest-neighbour tour is improved with 2-opt segment reversals until no reversal
+ * helps. Costs may be asymmetric (e.g. one-way escalators), so the reversed segment's inner edges
+ * are re-costed too. For the handful of stops a shopper picks this runs in well under a millisecond.
+ */
+public final class ItineraryOptimizer {
+
+    private static final int MAX_PASSES = 50;
+    private static final double EPSILON = 1e-9;
+
+    private ItineraryOptimizer() {
+    }
+
+    /**
+     * @param cost Square cost matrix, cost[i][j] being the cost of walking from node i to node j.
+     *             Unreachable pairs should be {@link Double#POSITIVE_INFINITY}.
+     * @param start Index of the fixed first node
+     * @return Visiting order of all nodes, beginning with {@code start}
+     */
+    public static int[] solve(double[][] cost, int start) {
+        int n = cost.length;
+        if (n == 0) {
+            return new int[0];
+        }
+        int[] order = nearestNeighbour(cost, start);
+        if (n > 3) {
+            improveWithTwoOpt(cost, order);
+        }
+        return order;
+    }
+
+    /**
+     * @return The total cost of walking the nodes in the given order
+     */
+    public static double pathCost(double[][] cost, int[] order) {
+        double total = 0;
+        for (int k = 0; k + 1 < order.length; k++) {
+            total += cost[order[k]][order[k + 1]];
+        }
+        return total;
+    }
+
+    private static int[] nearestNeighbour(double[][] cost, int start) {
+        int n = cost.length;
+        int[] order = new int[n];
+        boolean[] visited = new boolean[n];
+        order[0] = start;
+        visited[start] = true;
+        for (int k = 1; k < n; k++) {
+            int from = order[k - 1];
+            int best = -1;
+            double bestCost = Double.POSITIVE_INFINITY;
+            for (int j = 0; j < n; j++) {
+                if (!visited[j] && (best < 0 || cost[from][j] < bestCost)) {
+                    best = j;
+                    bestCost = cost[from][j];
+                }
+            }
+            order[k] = best;
+            visited[best] = true;
+        }
+        return order;
+    }
+
+    private static void improveWithTwoOpt(double[][] cost, int[] order) {
+        int n = order.length;
+        boolean improved = true;
+        for (int pass = 0; improved && pass < MAX_PASSES; pass++) {
+            improved = false;
+            // The first node is fixed; reverse order[i..j] for 1 <= i < j <= n - 1
+            for (int i = 1; i < n - 1; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    if (reversalDelta(cost, order, i, j) < -EPSILON) {
+                        reverse(order, i, j);
+                        improved = true;
+                    }
+                }
+            }
+        }
+    }
+
+    private static double reversalDelta(double[][] cost, int[] order, int i, int j) {
+        int before = order[i - 1];
+        double delta = cost[before][order[j]] - cost[before][order[i]];
+        if (j + 1 < order.length) {
+            int after = order[j + 1];
+            delta += cost[order[i]][after] - cost[order[j]][after];
+        }
+        // Inner edges are walked the other way round after the reversal
+        for (int k = i; k < j; k++) {
+            delta += cost[order[k + 1]][order[k]] - cost[order[k]][order[k + 1]];
+        }
+        if (Double.isNaN(delta)) {
+            // Infinity minus infinity: treat as no improvement
+            return 0;
+        }
+        return delta;
+    }
+
+    private static void reverse(int[] order, int i, int j) {
+        while (i < j) {
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+            i++;
+            j--;
+        }
+    }
+}
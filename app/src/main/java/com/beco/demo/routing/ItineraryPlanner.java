@@ -0,0 +1,171 @@
+package com.beco.demo.routing;
+
+import com.becomap.sdk.models.BCLocation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Collects the stops of a multi-stop trip and orders them for the shortest walk.
+ *
+ * Planning builds the distance matrix from the start and all stops to all stops with the
+ * {@link BatchRouteService}, solves the visiting order with {@link ItineraryOptimizer} and reports
+ * the ordered stops. The last ordered stop is the route's destination, the others its waypoints.
+ * The walk never returns to the start, so routes back to it are not requested.
+ *
+ * The start is only known once the user picks it, but the stops are known one by one while they
+ * are added. Each added stop therefore submits the stop-to-stop part of the matrix right away; it
+ * is calculated in the background while the user picks further stops and the start, and is cached
+ * by the service. Planning then only has to wait for the n routes from the start.
+ */
+public class ItineraryPlanner {
+
+    public static final int MAX_STOPS = 10;
+
+    public interface Listener {
+        /**
+         * @param start The start location
+         * @param orderedStops All stops in visiting order
+         */
+        void onItineraryPlanned(BCLocation start, List<BCLocation> orderedStops);
+    }
+
+    private final BatchRouteService batchRouteService;
+    private final List<BCLocation> stops = new ArrayList<>();
+    private BatchRouteService.Batch warmUp;
+    private int planGeneration;
+
+    /**
+     * @param batchRouteService Matrix source. A symmetric service only reuses reversible routes for
+     *                          the other direction, so one-way links such as escalators still
+     *                          make A to B and B to A differ.
+     */
+    public ItineraryPlanner(BatchRouteService batchRouteService) {
+        this.batchRouteService = batchRouteService;
+    }
+
+    /**
+     * Adds a stop unless it is already part of the itinerary or the itinerary is full.
+     *
+     * @return true if the stop was added
+     */
+    public boolean addStop(BCLocation location) {
+        if (location == null || location.getId() == null || stops.size() >= MAX_STOPS) {
+            return false;
+        }
+        for (BCLocation stop : stops) {
+            if (location.getId().equals(stop.getId())) {
+                return false;
+            }
+        }
+        stops.add(location);
+        warmUp();
+        return true;
+    }
+
+    public List<BCLocation> getStops() {
+        return Collections.unmodifiableList(stops);
+    }
+
+    public int getStopCount() {
+        return stops.size();
+    }
+
+    public boolean hasStops() {
+        return !stops.isEmpty();
+    }
+
+    /**
+     * Removes all stops and abandons any plan in progress.
+     */
+    public void clear() {
+        stops.clear();
+        cancelWarmUp();
+        planGeneration++;
+    }
+
+    /**
+     * Orders the current stops for a walk beginning at {@code start}.
+     */
+    public void plan(BCLocation start, Listener listener) {
+        final List<BCLocation> nodes = new ArrayList<>(stops.size() + 1);
+        nodes.add(start);
+        for (BCLocation stop : stops) {
+            if (!stop.getId().equals(start.getId())) {
+                nodes.add(stop);
+            }
+        }
+        if (nodes.size() <= 2) {
+            listener.onItineraryPlanned(start, new ArrayList<>(nodes.subList(1, nodes.size())));
+            return;
+        }
+
+        final int generation = ++planGeneration;
+        // Pairs the warm-up already sent are shared with this batch, not requested again
+        cancelWarmUp();
+        if (!batchRouteService.hasCapacity()) {
+            // Too much matrix work queued - route the stops in the order they were added
+            listener.onItineraryPlanned(start, new ArrayList<>(nodes.subList(1, nodes.size())));
+            return;
+        }
+        final List<BCLocation> destinations = nodes.subList(1, nodes.size());
+        batchRouteService.submit(nodes, destinations, matrix -> {
+            if (generation != planGeneration) {
+                return; // Itinerary changed while the matrix was being built
+            }
+            int[] order = ItineraryOptimizer.solve(
+                    costMatrix(matrix.toDistanceArray(), matrix.toDurationArray()), 0);
+            List<BCLocation> ordered = new ArrayList<>(order.length - 1);
+            for (int k = 1; k < order.length; k++) {
+                ordered.add(nodes.get(order[k]));
+            }
+            listener.onItineraryPlanned(start, ordered);
+        });
+    }
+
+    /**
+     * Requests the stop-to-stop matrix of the current stops in the background. Only pairs the
+     * service has not cached yet reach the SDK, so each new stop costs its routes to and from the
+     * earlier stops. The result is not used directly; it stays in the service's cache for
+     * {@link #plan}.
+     */
+    private void warmUp() {
+        cancelWarmUp();
+        if (stops.size() < 2 || !batchRouteService.hasCapacity()) {
+            return;
+        }
+        warmUp = batchRouteService.submit(stops, stops, matrix -> { });
+    }
+
+    private void cancelWarmUp() {
+        if (warmUp != null) {
+            warmUp.cancel();
+            warmUp = null;
+        }
+    }
+
+    /**
+     * Turns the nodes-to-stops matrix into the square matrix the optimizer takes, in metres.
+     * Pairs whose distance could not be read are costed by their walking time at
+     * {@link RouteMetrics#WALKING_SPEED_METERS_PER_SECOND}; pairs with neither are unreachable.
+     * Column 0, back to the fixed start, is never walked.
+     */
+    private static double[][] costMatrix(double[][] distances, double[][] durations) {
+        int n = distances.length;
+        double[][] cost = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            cost[i][0] = Double.POSITIVE_INFINITY;
+            for (int j = 1; j < n; j++) {
+                double d = distances[i][j - 1];
+                if (Double.isNaN(d)) {
+                    double t = durations[i][j - 1];
+                    d = Double.isNaN(t) ? Double.POSITIVE_INFINITY
+                            : t * RouteMetrics.WALKING_SPEED_METERS_PER_SECOND;
+                }
+                cost[i][j] = d;
+            }
+        }
+        return cost;
+    }
+}
@@ -0,0 +1,92 @@
+package com.beco.demo.routing;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+/**
+ * Replays a walk along a route in real time, for trying out navigation without walking a venue.
+ *
+ * Fixes come from a {@link SimulatedPositionStream} and are delivered on the main thread at the
+ * stream's sample rate, through the same entry point as real position fixes. It needs a prepared
+ * {@link RoutePath}; the app cannot build one from the map SDK's routes, see
+ * {@link RouteProgressTracker}, so it only walks paths handed to it.
+ *
+ * Must be used from the main thread.
+ */
+public class NavigationSimulator {
+
+    private static final String TAG = "NavigationSimulator";
+
+    public static final double DEFAULT_SPEED_METERS_PER_SECOND = 1.4;
+    public static final double DEFAULT_NOISE_METERS = 1.5;
+    public static final double DEFAULT_SAMPLE_RATE_HZ = 2.0;
+
+    public interface Sink {
+        /**
+         * Receives a simulated fix, like a real one.
+         */
+        void onPositionFix(String floorId, double latitude, double longitude);
+    }
+
+    private final Sink sink;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable emitRunnable = this::emitNext;
+
+    private double speedMetersPerSecond = DEFAULT_SPEED_METERS_PER_SECOND;
+    private double noiseMeters = DEFAULT_NOISE_METERS;
+    private double sampleRateHz = DEFAULT_SAMPLE_RATE_HZ;
+    private SimulatedPositionStream stream;
+
+    public NavigationSimulator(Sink sink) {
+        this.sink = sink;
+    }
+
+    public void setSpeed(double speedMetersPerSecond) {
+        this.speedMetersPerSecond = speedMetersPerSecond;
+    }
+
+    public void setNoise(double noiseMeters) {
+        this.noiseMeters = noiseMeters;
+    }
+
+    public void setSampleRate(double sampleRateHz) {
+        this.sampleRateHz = sampleRateHz;
+    }
+
+    /**
+     * Walks {@code path} from its start, replacing any walk in progress. Settings apply from the
+     * next start.
+     */
+    public void start(RoutePath path) {
+        stop();
+        stream = new SimulatedPositionStream(path, speedMetersPerSecond, noiseMeters, sampleRateHz,
+                System.nanoTime());
+        Log.d(TAG, "Simulating " + Math.round(path.getLength()) + " m at " + speedMetersPerSecond + " m/s");
+        emitNext();
+    }
+
+    public void stop() {
+        handler.removeCallbacks(emitRunnable);
+        stream = null;
+    }
+
+    public boolean isRunning() {
+        return stream != null;
+    }
+
+    private void emitNext() {
+        SimulatedPositionStream current = stream;
+        if (current == null) {
+            return;
+        }
+        PositionFix fix = current.next();
+        if (current.hasNext()) {
+            handler.postDelayed(emitRunnable, current.getIntervalMillis());
+        } else {
+            stream = null;
+            Log.d(TAG, "Simulated walk reached the destination");
+        }
+        sink.onPositionFix(fix.getFloorId(), fix.getLatitude(), fix.getLongitude());
+    }
+}
@@ -0,0 +1,43 @@
+package com.beco.demo.routing;
+
+/**
+ * A position of the user at a point in time.
+ */
+public final class PositionFix {
+
+    private final long timeMillis;
+    private final String floorId;
+    private final double latitude;
+    private final double longitude;
+
+    public PositionFix(long timeMillis, String floorId, double latitude, double longitude) {
+        this.timeMillis = timeMillis;
+        this.floorId = floorId;
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    /**
+     * @return When the fix was taken, relative to the start of its stream
+     */
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    public String getFloorId() {
+        return floorId;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    @Override
+    public String toString() {
+        return "PositionFix{" + timeMillis + " ms, " + floorId + ", " + latitude + ", " + longitude + "}";
+    }
+}
@@ -0,0 +1,264 @@
+package com.beco.demo.routing;
+
+import com.becomap.sdk.models.BCLocation;
+import com.becomap.sdk.models.BCRoute;
+import com.becomap.sdk.models.BCRouteErrorCode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The alternative routes between one source and destination.
+ *
+ * Once the fastest route is known and it changes floors, the other {@link RouteVariant}s are
+ * requested together through the {@link RouteProvider}. Every route in a result list is a
+ * candidate. Candidates with the same distance, time and floors are one alternative that satisfies
+ * several variants, e.g. a fastest route that already uses the elevator. Alternatives keep their routes, so switching between them
+ * never recalculates anything.
+ *
+ * Must be used from the main thread.
+ */
+public class RouteAlternatives {
+
+    public interface Listener {
+        /**
+         * Called whenever an alternative was added.
+         */
+        void onAlternativesChanged(RouteAlternatives alternatives);
+    }
+
+    /**
+     * One distinct route and the variants it satisfies.
+     */
+    public static final class Alternative {
+        private final RouteKey key;
+        private final List<BCLocation> waypoints;
+        private final List<BCRoute> routes;
+        private final int routeIndex;
+        private final String signature;
+        private final List<RouteVariant> variants = new ArrayList<>(2);
+
+        Alternative(RouteVariant variant, RouteKey key, List<BCLocation> waypoints, List<BCRoute> routes,
+                    int routeIndex, String signature) {
+            this.key = key;
+            this.waypoints = waypoints;
+            this.routes = routes;
+            this.routeIndex = routeIndex;
+            this.signature = signature;
+            this.variants.add(variant);
+        }
+
+        /**
+         * @return The key of the route set this alternative was calculated in
+         */
+        public RouteKey getKey() {
+            return key;
+        }
+
+        /**
+         * @return The waypoints the route set was calculated with, to request it again
+         */
+        public List<BCLocation> getWaypoints() {
+            return waypoints;
+        }
+
+        /**
+         * @return The complete route set, as returned by the SDK
+         */
+        public List<BCRoute> getRoutes() {
+            return routes;
+        }
+
+        /**
+         * @return Index of this alternative within {@link #getRoutes()}, for {@code showRoute}
+         */
+        public int getRouteIndex() {
+            return routeIndex;
+        }
+
+        public BCRoute getRoute() {
+            return routes.get(routeIndex);
+        }
+
+        public List<RouteVariant> getVariants() {
+            return Collections.unmodifiableList(variants);
+        }
+
+        /**
+         * @return e.g. "Fastest" or "Fastest · Elevator"
+         */
+        public String getLabel() {
+            StringBuilder label = new StringBuilder();
+            for (RouteVariant variant : variants) {
+                if (label.length() > 0) {
+                    label.append(" · ");
+                }
+                label.append(variant.getLabel());
+            }
+            return label.toString();
+        }
+    }
+
+    private final RouteProvider routeProvider;
+    private final List<Alternative> alternatives = new ArrayList<>();
+    private List<BCLocation> locations;
+    private BCLocation source;
+    private BCLocation destination;
+    private int selectedIndex;
+    private int generation;
+
+    public RouteAlternatives(RouteProvider routeProvider) {
+        this.routeProvider = routeProvider;
+    }
+
+    /**
+     * Sets the site's locations, which variants pick their waypoints from.
+     */
+    public void setLocations(List<BCLocation> locations) {
+        this.locations = locations;
+    }
+
+    /**
+     * Starts over for a new pair of endpoints with the fastest routes already calculated, and
+     * requests the remaining variants.
+     *
+     * @param fastestKey Key of the fastest route set
+     * @param fastestRoutes The fastest route set
+     */
+    public void load(BCLocation source, BCLocation destination, RouteKey fastestKey,
+                     List<BCRoute> fastestRoutes, final Listener listener) {
+        clear();
+        this.source = source;
+        this.destination = destination;
+        add(RouteVariant.FASTEST, fastestKey, null, fastestRoutes);
+        if (!fastestRoutes.get(0).isMultiFloor()) {
+            return; // Nothing to change floors with - the other variants would be the same route
+        }
+
+        final int loadGeneration = generation;
+        for (final RouteVariant variant : RouteVariant.values()) {
+            if (variant == RouteVariant.FASTEST) {
+                continue;
+            }
+            final List<BCLocation> waypoints = variant.waypointsFor(source, destination, locations);
+            if (waypoints == null) {
+                continue;
+            }
+            final RouteKey key = RouteKey.of(source, destination, waypoints, variant.getOptionsKey());
+            routeProvider.requestRoute(source, destination, waypoints, variant.getOptionsKey(),
+                    new RouteProvider.Callback() {
+                @Override
+                public void onRouteCalculated(List<BCRoute> routes) {
+                    if (loadGeneration == generation && add(variant, key, waypoints, routes)) {
+                        listener.onAlternativesChanged(RouteAlternatives.this);
+                    }
+                }
+
+                @Override
+                public void onRouteFailed(BCRouteErrorCode errorCode) {
+                    // No route of this kind - the variant is simply not offered
+                }
+            });
+        }
+    }
+
+    /**
+     * Forgets the alternatives. Results of requests still running are ignored.
+     */
+    public void clear() {
+        generation++;
+        alternatives.clear();
+        source = null;
+        destination = null;
+        selectedIndex = 0;
+    }
+
+    /**
+     * @return true if the alternatives are for this pair of endpoints
+     */
+    public boolean isFor(BCLocation source, BCLocation destination) {
+        return this.source != null && this.destination != null
+                && source != null && destination != null
+                && this.source.getId().equals(source.getId())
+                && this.destination.getId().equals(destination.getId());
+    }
+
+    public int size() {
+        return alternatives.size();
+    }
+
+    public Alternative get(int index) {
+        return alternatives.get(index);
+    }
+
+    public List<Alternative> getAlternatives() {
+        return Collections.unmodifiableList(alternatives);
+    }
+
+    public int getSelectedIndex() {
+        return selectedIndex;
+    }
+
+    public void setSelectedIndex(int selectedIndex) {
+        this.selectedIndex = selectedIndex;
+    }
+
+    /**
+     * @return The selected alternative, or null if there is none
+     */
+    public Alternative getSelected() {
+        return selectedIndex < alternatives.size() ? alternatives.get(selectedIndex) : null;
+    }
+
+    /**
+     * @return Labels of all alternatives, in display order
+     */
+    public List<String> getLabels() {
+        List<String> labels = new ArrayList<>(alternatives.size());
+        for (Alternative alternative : alternatives) {
+            labels.add(alternative.getLabel());
+        }
+        return labels;
+    }
+
+    /**
+     * Adds the routes of a variant, merging each into an equivalent alternative if there is one.
+     *
+     * @return true if the alternatives changed
+     */
+    private boolean add(RouteVariant variant, RouteKey key, List<BCLocation> waypoints, List<BCRoute> routes) {
+        if (routes == null || routes.isEmpty()) {
+            return false;
+        }
+        boolean changed = false;
+        for (int i = 0; i < routes.size(); i++) {
+            String signature = signatureOf(routes.get(i));
+            Alternative existing = findBySignature(signature);
+            if (existing == null) {
+                alternatives.add(new Alternative(variant, key, waypoints, routes, i, signature));
+                changed = true;
+            } else if (!existing.variants.contains(variant)) {
+                existing.variants.add(variant);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private Alternative findBySignature(String signature) {
+        for (Alternative alternative : alternatives) {
+            if (alternative.signature.equals(signature)) {
+                return alternative;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Routes with the same distance, time and floors are treated as the same route.
+     */
+    private static String signatureOf(BCRoute route) {
+        return route.getFormattedDistance() + "|" + route.getFormattedTime() + "|" + route.getInvolvedFloors();
+    }
+}
@@ -0,0 +1,136 @@
+package com.beco.demo.routing;
+
+import com.becomap.sdk.models.BCRoute;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded, least-recently-used cache of calculated routes.
+ * Entries expire after a fixed time-to-live and the whole cache is dropped when site data changes,
+ * since routes computed against an older site graph may no longer be valid.
+ */
+public class RouteCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 32;
+    public static final long DEFAULT_TTL_MS = TimeUnit.MINUTES.toMillis(10);
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LinkedHashMap<RouteKey, Entry> entries;
+
+    private int hits;
+    private int misses;
+
+    public RouteCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_TTL_MS);
+    }
+
+    /**
+     * @param maxEntries Maximum number of route sets kept before the least recently used is evicted
+     * @param ttlMs Time in milliseconds after which an entry is treated as missing
+     */
+    public RouteCache(int maxEntries, long ttlMs) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        // Access order makes iteration order least-recently-used first
+        this.entries = new LinkedHashMap<RouteKey, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<RouteKey, Entry> eldest) {
+                return size() > RouteCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Looks up the routes for a key.
+     *
+     * @param key The route key
+     * @return The cached routes, or null if absent or expired
+     */
+    public synchronized List<BCRoute> get(RouteKey key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (isExpired(entry, System.nanoTime())) {
+            entries.remove(key);
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.routes;
+    }
+
+    /**
+     * Checks for a live entry without touching its recency or the hit statistics.
+     */
+    public synchronized boolean contains(RouteKey key) {
+        Entry entry = entries.get(key);
+        return entry != null && !isExpired(entry, System.nanoTime());
+    }
+
+    /**
+     * Stores the routes calculated for a key. Empty results are not cached.
+     */
+    public synchronized void put(RouteKey key, List<BCRoute> routes) {
+        if (key == null || routes == null || routes.isEmpty()) {
+            return;
+        }
+        entries.put(key, new Entry(Collections.unmodifiableList(routes), System.nanoTime()));
+    }
+
+    /**
+     * Drops every cached route. Call when the site data (and therefore the route graph) changes.
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    /**
+     * Removes expired entries eagerly.
+     */
+    public synchronized void trim() {
+        long now = System.nanoTime();
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (isExpired(it.next(), now)) {
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized int getHitCount() {
+        return hits;
+    }
+
+    public synchronized int getMissCount() {
+        return misses;
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return now - entry.createdAtNanos > ttlNanos;
+    }
+
+    private static final class Entry {
+        final List<BCRoute> routes;
+        final long createdAtNanos;
+
+        Entry(List<BCRoute> routes, long createdAtNanos) {
+            this.routes = routes;
+            this.createdAtNanos = createdAtNanos;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.beco.demo.routing;
+
+import com.becomap.sdk.models.BCLocation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable identity of a route request: source, destination, ordered waypoints and route options.
+ * Two requests with equal keys are expected to produce the same routes for the same site data.
+ */
+public final class RouteKey {
+
+    /** Options key used when the SDK is called with default (null) route options. */
+    public static final String DEFAULT_OPTIONS = "default";
+
+    private final String sourceId;
+    private final String destinationId;
+    private final List<String> waypointIds;
+    private final String optionsKey;
+    private final int hash;
+
+    public RouteKey(String sourceId, String destinationId, List<String> waypointIds, String optionsKey) {
+        if (sourceId == null || destinationId == null) {
+            throw new IllegalArgumentException("Route key requires both source and destination ids");
+        }
+        this.sourceId = sourceId;
+        this.destinationId = destinationId;
+        this.waypointIds = waypointIds != null && !waypointIds.isEmpty()
+                ? Collections.unmodifiableList(new ArrayList<>(waypointIds))
+                : Collections.<String>emptyList();
+        this.optionsKey = optionsKey != null ? optionsKey : DEFAULT_OPTIONS;
+
+        int h = sourceId.hashCode();
+        h = 31 * h + destinationId.hashCode();
+        h = 31 * h + this.waypointIds.hashCode();
+        h = 31 * h + this.optionsKey.hashCode();
+        this.hash = h;
+    }
+
+    /**
+     * Builds a key from SDK locations.
+     *
+     * @param source The start location
+     * @param destination The end location
+     * @param waypoints Intermediate stops in visiting order, or null for none
+     * @param optionsKey Stable identifier of the route options, or null for defaults
+     * @return The route key
+     */
+    public static RouteKey of(BCLocation source, BCLocation destination, List<BCLocation> waypoints, String optionsKey) {
+        List<String> ids = null;
+        if (waypoints != null && !waypoints.isEmpty()) {
+            ids = new ArrayList<>(waypoints.size());
+            for (BCLocation waypoint : waypoints) {
+                ids.add(waypoint.getId());
+            }
+        }
+        return new RouteKey(source.getId(), destination.getId(), ids, optionsKey);
+    }
+
+    public String getSourceId() {
+        return sourceId;
+    }
+
+    public String getDestinationId() {
+        return destinationId;
+    }
+
+    public List<String> getWaypointIds() {
+        return waypointIds;
+    }
+
+    public String getOptionsKey() {
+        return optionsKey;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof RouteKey)) return false;
+        RouteKey other = (RouteKey) o;
+        return hash == other.hash
+                && sourceId.equals(other.sourceId)
+                && destinationId.equals(other.destinationId)
+                && waypointIds.equals(other.waypointIds)
+                && optionsKey.equals(other.optionsKey);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return sourceId + " -> " + destinationId
+                + (waypointIds.isEmpty() ? "" : " via " + waypointIds)
+                + " [" + optionsKey + "]";
+    }
+}
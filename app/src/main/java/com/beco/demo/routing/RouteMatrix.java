@@ -0,0 +1,79 @@
+package com.beco.demo.routing;
+
+import java.util.Arrays;
+
+/**
+ * Walking distances and times between a set of sources (rows) and destinations (columns),
+ * stored in flat row-major primitive arrays. Unreachable or failed pairs are infinite.
+ */
+public final class RouteMatrix {
+
+    private final int rows;
+    private final int columns;
+    private final double[] distances;
+    private final double[] durations;
+
+    RouteMatrix(int rows, int columns) {
+        this.rows = rows;
+        this.columns = columns;
+        this.distances = new double[rows * columns];
+        this.durations = new double[rows * columns];
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+        Arrays.fill(durations, Double.POSITIVE_INFINITY);
+    }
+
+    void set(int row, int column, double distanceMeters, double durationSeconds) {
+        int index = row * columns + column;
+        distances[index] = distanceMeters;
+        durations[index] = durationSeconds;
+    }
+
+    public int getRowCount() {
+        return rows;
+    }
+
+    public int getColumnCount() {
+        return columns;
+    }
+
+    /**
+     * @return Walking distance in metres from source {@code row} to destination {@code column}
+     */
+    public double getDistance(int row, int column) {
+        return distances[row * columns + column];
+    }
+
+    /**
+     * @return Walking time in seconds from source {@code row} to destination {@code column}
+     */
+    public double getDuration(int row, int column) {
+        return durations[row * columns + column];
+    }
+
+    public boolean isReachable(int row, int column) {
+        int index = row * columns + column;
+        return !Double.isInfinite(distances[index]) || !Double.isInfinite(durations[index]);
+    }
+
+    /**
+     * @return A copy of the distances as a 2D array, distances[row][column]
+     */
+    public double[][] toDistanceArray() {
+        return toArray(distances);
+    }
+
+    /**
+     * @return A copy of the durations as a 2D array, durations[row][column]
+     */
+    public double[][] toDurationArray() {
+        return toArray(durations);
+    }
+
+    private double[][] toArray(double[] flat) {
+        double[][] out = new double[rows][columns];
+        for (int r = 0; r < rows; r++) {
+            System.arraycopy(flat, r * columns, out[r], 0, columns);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,147 @@
+package com.beco.demo.routing;
+
+import com.becomap.sdk.models.BCRoute;
+
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Numeric walking distance and time of a route.
+ *
+ * The SDK exposes these only as display strings ("350.1 meters", "4 min 11 sec"), so they are
+ * parsed back into metres and seconds here, in one place.
+ */
+public final class RouteMetrics {
+
+    /** Average walking speed, used to compare a time with a distance. */
+    public static final double WALKING_SPEED_METERS_PER_SECOND = 1.4;
+
+    /** Metrics of a pair with no route between them. */
+    public static final RouteMetrics UNREACHABLE =
+            new RouteMetrics(Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, false);
+
+    private static final Pattern QUANTITY =
+            Pattern.compile("(\\d+(?:,\\d{3}(?!\\d))*(?:[.,]\\d+)?)\\s*([a-zA-Z]*)");
+
+    /** A number whose commas all group thousands, e.g. "1,234" or "12,345.6". */
+    private static final Pattern GROUPED = Pattern.compile("\\d{1,3}(?:,\\d{3})+(?:\\.\\d+)?");
+
+    private final double distanceMeters;
+    private final double durationSeconds;
+    private final boolean reversible;
+
+    /**
+     * Metrics of a route that can also be walked backwards.
+     */
+    public RouteMetrics(double distanceMeters, double durationSeconds) {
+        this(distanceMeters, durationSeconds, true);
+    }
+
+    /**
+     * @param reversible Whether the metrics also hold for the reverse route
+     */
+    public RouteMetrics(double distanceMeters, double durationSeconds, boolean reversible) {
+        this.distanceMeters = distanceMeters;
+        this.durationSeconds = durationSeconds;
+        this.reversible = reversible;
+    }
+
+    /**
+     * @param route A calculated route, may be null
+     * @return The route's metrics, or {@link #UNREACHABLE} if it has none
+     */
+    public static RouteMetrics of(BCRoute route) {
+        if (route == null) {
+            return UNREACHABLE;
+        }
+        double distance = parseDistanceMeters(route.getFormattedDistance());
+        double duration = parseDurationSeconds(route.getFormattedTime());
+        if (Double.isNaN(distance) && Double.isNaN(duration)) {
+            return UNREACHABLE;
+        }
+        return new RouteMetrics(distance, duration, RouteReversal.isReversible(route));
+    }
+
+    public double getDistanceMeters() {
+        return distanceMeters;
+    }
+
+    public double getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    /**
+     * @return true if the reverse route has the same metrics, see {@link RouteReversal#isReversible}
+     */
+    public boolean isReversible() {
+        return reversible;
+    }
+
+    public boolean isReachable() {
+        return !Double.isInfinite(distanceMeters) || !Double.isInfinite(durationSeconds);
+    }
+
+    /**
+     * Parses strings like "350.1 meters", "1,234 m" or "1.2 km".
+     *
+     * @return Distance in metres, or NaN if the text has no number
+     */
+    public static double parseDistanceMeters(String text) {
+        if (text == null) {
+            return Double.NaN;
+        }
+        double total = Double.NaN;
+        Matcher m = QUANTITY.matcher(text.toLowerCase(Locale.ROOT));
+        while (m.find()) {
+            double value = parseNumber(m.group(1));
+            String unit = m.group(2);
+            double meters = unit.startsWith("k") ? value * 1000.0 : value;
+            total = Double.isNaN(total) ? meters : total + meters;
+        }
+        return total;
+    }
+
+    /**
+     * Parses strings like "4 min 11 sec", "1 hr 5 min" or "45 s".
+     *
+     * @return Duration in seconds, or NaN if the text has no number
+     */
+    public static double parseDurationSeconds(String text) {
+        if (text == null) {
+            return Double.NaN;
+        }
+        double total = Double.NaN;
+        Matcher m = QUANTITY.matcher(text.toLowerCase(Locale.ROOT));
+        while (m.find()) {
+            double value = parseNumber(m.group(1));
+            String unit = m.group(2);
+            double seconds;
+            if (unit.startsWith("h")) {
+                seconds = value * 3600.0;
+            } else if (unit.startsWith("s")) {
+                seconds = value;
+            } else {
+                // "min", "m" and a bare number are minutes
+                seconds = value * 60.0;
+            }
+            total = Double.isNaN(total) ? seconds : total + seconds;
+        }
+        return total;
+    }
+
+    /**
+     * Reads "1,234" and "1,234.5" as grouped thousands and "1,5" as a decimal comma.
+     */
+    private static double parseNumber(String number) {
+        if (GROUPED.matcher(number).matches()) {
+            return Double.parseDouble(number.replace(",", ""));
+        }
+        return Double.parseDouble(number.replace(',', '.'));
+    }
+
+    @Override
+    public String toString() {
+        return "RouteMetrics{" + distanceMeters + " m, " + durationSeconds + " s}";
+    }
+}
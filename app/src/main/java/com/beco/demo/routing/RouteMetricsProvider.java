@@ -0,0 +1,63 @@
+package com.beco.demo.routing;
+
+import com.becomap.sdk.models.BCLocation;
+import com.becomap.sdk.models.BCRoute;
+import com.becomap.sdk.models.BCRouteErrorCode;
+
+import java.util.List;
+
+/**
+ * Asynchronous source of walking distance and time between two locations.
+ * {@link BatchRouteService} works against this interface so it can run against a local stand-in.
+ */
+public interface RouteMetricsProvider {
+
+    interface Callback {
+        /**
+         * @param metrics The pair's metrics, {@link RouteMetrics#UNREACHABLE} if there is no route
+         */
+        void onMetrics(RouteMetrics metrics);
+
+        /**
+         * Called when the pair could not be calculated this time; the result is not cached.
+         */
+        void onFailed();
+    }
+
+    /**
+     * Requests metrics for a pair. The callback is invoked exactly once, on any thread.
+     */
+    void requestMetrics(BCLocation source, BCLocation destination, Callback callback);
+
+    /**
+     * Adapts a {@link RouteProvider} by measuring the first route it returns.
+     */
+    final class FromRoutes implements RouteMetricsProvider {
+        private final RouteProvider routeProvider;
+
+        public FromRoutes(RouteProvider routeProvider) {
+            this.routeProvider = routeProvider;
+        }
+
+        @Override
+        public void requestMetrics(BCLocation source, BCLocation destination, Callback callback) {
+            routeProvider.requestRoute(source, destination, new RouteProvider.Callback() {
+                @Override
+                public void onRouteCalculated(List<BCRoute> routes) {
+                    callback.onMetrics(routes != null && !routes.isEmpty()
+                            ? RouteMetrics.of(routes.get(0))
+                            : RouteMetrics.UNREACHABLE);
+                }
+
+                @Override
+                public void onRouteFailed(BCRouteErrorCode errorCode) {
+                    if (errorCode == BCRouteErrorCode.NO_ROUTE_FOUND) {
+                        callback.onMetrics(RouteMetrics.UNREACHABLE);
+                    } else {
+                        callback.onFailed();
+                    }
+                }
+            });
+        }
+    }
+}
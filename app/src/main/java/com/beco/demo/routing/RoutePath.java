@@ -0,0 +1,307 @@
+package com.beco.demo.routing;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The walkable geometry of a route, prepared for projecting position fixes onto it.
+ *
+ * The path runs through the route's vertices in walking order, each on a floor. Vertices are converted to local
+ * metres and the cumulative length at every vertex is computed once, so the distance walked is the
+ * cumulative length of the matched segment plus the offset into it. Segments joining two floors
+ * (elevators, stairs) have no length on the map.
+ *
+ * Every floor keeps the start lengths of its own segments in walking order. A fix is matched by a
+ * binary search for the expected position on the fix's floor and a check of the few segments
+ * around it, instead of a scan of the whole polyline. Only a fix far away from all of those is
+ * looked up on the whole floor.
+ *
+ * Immutable and safe to share between threads.
+ */
+public final class RoutePath {
+
+    static final double EARTH_RADIUS_METERS = 6371008.8;
+    /** Segments checked on either side of the expected position. */
+    private static final int SEARCH_WINDOW = 4;
+    /** Fixes further than this from the segments around the expected position are reacquired. */
+    private static final double REACQUIRE_METERS = 20.0;
+
+    /**
+     * A position fix matched to the path.
+     */
+    public static final class Projection {
+        private final double alongMeters;
+        private final double offsetMeters;
+        private final int stepIndex;
+        private final String floorId;
+
+        Projection(double alongMeters, double offsetMeters, int stepIndex, String floorId) {
+            this.alongMeters = alongMeters;
+            this.offsetMeters = offsetMeters;
+            this.stepIndex = stepIndex;
+            this.floorId = floorId;
+        }
+
+        /**
+         * @return Path length from the start to the matched point
+         */
+        public double getAlongMeters() {
+            return alongMeters;
+        }
+
+        /**
+         * @return Distance between the fix and the matched point
+         */
+        public double getOffsetMeters() {
+            return offsetMeters;
+        }
+
+        /**
+         * @return Index of the route step being walked
+         */
+        public int getStepIndex() {
+            return stepIndex;
+        }
+
+        public String getFloorId() {
+            return floorId;
+        }
+    }
+
+    /**
+     * The segments of one floor, in walking order.
+     */
+    private static final class FloorIndex {
+        final int[] segments;
+        final double[] starts;
+
+        FloorIndex(int[] segments, double[] starts) {
+            this.segments = segments;
+            this.starts = starts;
+        }
+    }
+
+    private final String[] floorIds;
+    private final int[] stepIndices;
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final double[] x;
+    private final double[] y;
+    private final double[] cumulative;
+    private final double originLatitude;
+    private final double originLongitude;
+    private final double metersPerDegreeLongitude;
+    private final Map<String, FloorIndex> floorIndex = new HashMap<>();
+
+    /**
+     * @param floorIds Floor of every vertex
+     * @param latitudes Latitude of every vertex
+     * @param longitudes Longitude of every vertex
+     * @param stepIndices Route step every vertex starts
+     */
+    public RoutePath(String[] floorIds, double[] latitudes, double[] longitudes, int[] stepIndices) {
+        int count = floorIds.length;
+        if (count < 2 || latitudes.length != count || longitudes.length != count || stepIndices.length != count) {
+            throw new IllegalArgumentException("A path needs at least two vertices with matching arrays");
+        }
+        this.floorIds = floorIds.clone();
+        this.stepIndices = stepIndices.clone();
+        this.latitudes = latitudes.clone();
+        this.longitudes = longitudes.clone();
+        this.originLatitude = latitudes[0];
+        this.originLongitude = longitudes[0];
+        this.metersPerDegreeLongitude = Math.toRadians(EARTH_RADIUS_METERS) * Math.cos(Math.toRadians(originLatitude));
+
+        x = new double[count];
+        y = new double[count];
+        cumulative = new double[count];
+        for (int i = 0; i < count; i++) {
+            x[i] = (longitudes[i] - originLongitude) * metersPerDegreeLongitude;
+            y[i] = Math.toRadians(latitudes[i] - originLatitude) * EARTH_RADIUS_METERS;
+            if (i > 0) {
+                double length = isOnFloor(i - 1) ? Math.hypot(x[i] - x[i - 1], y[i] - y[i - 1]) : 0;
+                cumulative[i] = cumulative[i - 1] + length;
+            }
+        }
+        buildFloorIndex();
+    }
+
+    /**
+     * @return Length of the path on the map, in metres
+     */
+    public double getLength() {
+        return cumulative[cumulative.length - 1];
+    }
+
+    public int getVertexCount() {
+        return floorIds.length;
+    }
+
+    /**
+     * Matches a fix to the path.
+     *
+     * @param floorId The floor the fix is on
+     * @param expectedMeters Where along the path the fix is expected, usually the last match
+     * @return The match, or null if the path does not cross the floor
+     */
+    public Projection project(String floorId, double latitude, double longitude, double expectedMeters) {
+        FloorIndex index = floorId != null ? floorIndex.get(floorId) : null;
+        if (index == null) {
+            return null;
+        }
+        double px = (longitude - originLongitude) * metersPerDegreeLongitude;
+        double py = Math.toRadians(latitude - originLatitude) * EARTH_RADIUS_METERS;
+
+        int expected = floorSegmentAt(index, expectedMeters);
+        int last = index.segments.length - 1;
+        Projection best = nearest(index, Math.max(0, expected - SEARCH_WINDOW),
+                Math.min(last, expected + SEARCH_WINDOW), px, py);
+        if (best.offsetMeters > REACQUIRE_METERS) {
+            // Lost the expected position, e.g. after a jump in the fixes - look at the whole floor
+            best = nearest(index, 0, last, px, py);
+        }
+        return best;
+    }
+
+    /**
+     * @return The point {@code alongMeters} along the path, clamped to its ends
+     */
+    public PathPoint pointAt(double alongMeters) {
+        int count = cumulative.length;
+        if (alongMeters <= 0) {
+            return new PathPoint(latitudes[0], longitudes[0], floorIds[0], stepIndices[0]);
+        }
+        if (alongMeters >= getLength()) {
+            int end = count - 1;
+            return new PathPoint(latitudes[end], longitudes[end], floorIds[end], stepIndices[end]);
+        }
+        // Last vertex at or before the position
+        int low = 0;
+        int high = count - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (cumulative[mid] <= alongMeters) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        // Skip zero-length floor changes so the point lies on the floor being walked
+        while (low + 1 < count && !isOnFloor(low)) {
+            low++;
+        }
+        double length = cumulative[low + 1] - cumulative[low];
+        double t = length > 0 ? (alongMeters - cumulative[low]) / length : 0;
+        return new PathPoint(
+                latitudes[low] + (latitudes[low + 1] - latitudes[low]) * t,
+                longitudes[low] + (longitudes[low + 1] - longitudes[low]) * t,
+                floorIds[low], stepIndices[low]);
+    }
+
+    /**
+     * A position on the path.
+     */
+    public static final class PathPoint {
+        private final double latitude;
+        private final double longitude;
+        private final String floorId;
+        private final int stepIndex;
+
+        PathPoint(double latitude, double longitude, String floorId, int stepIndex) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.floorId = floorId;
+            this.stepIndex = stepIndex;
+        }
+
+        public double getLatitude() {
+            return latitude;
+        }
+
+        public double getLongitude() {
+            return longitude;
+        }
+
+        public String getFloorId() {
+            return floorId;
+        }
+
+        public int getStepIndex() {
+            return stepIndex;
+        }
+    }
+
+    /**
+     * @return true if the segment starting at {@code vertex} stays on one floor
+     */
+    private boolean isOnFloor(int vertex) {
+        return floorIds[vertex].equals(floorIds[vertex + 1]);
+    }
+
+    private void buildFloorIndex() {
+        Map<String, List<Integer>> segmentsByFloor = new HashMap<>();
+        for (int s = 0; s + 1 < floorIds.length; s++) {
+            if (isOnFloor(s)) {
+                List<Integer> segments = segmentsByFloor.get(floorIds[s]);
+                if (segments == null) {
+                    segments = new ArrayList<>();
+                    segmentsByFloor.put(floorIds[s], segments);
+                }
+                segments.add(s);
+            }
+        }
+        for (Map.Entry<String, List<Integer>> entry : segmentsByFloor.entrySet()) {
+            List<Integer> segments = entry.getValue();
+            int[] indices = new int[segments.size()];
+            double[] starts = new double[segments.size()];
+            for (int k = 0; k < indices.length; k++) {
+                indices[k] = segments.get(k);
+                starts[k] = cumulative[indices[k]];
+            }
+            floorIndex.put(entry.getKey(), new FloorIndex(indices, starts));
+        }
+    }
+
+    /**
+     * Binary search for the floor's segment containing {@code alongMeters}.
+     */
+    private static int floorSegmentAt(FloorIndex index, double alongMeters) {
+        int low = 0;
+        int high = index.starts.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (index.starts[mid] <= alongMeters) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    private Projection nearest(FloorIndex index, int from, int to, double px, double py) {
+        int bestSegment = -1;
+        double bestT = 0;
+        double bestDistanceSquared = Double.POSITIVE_INFINITY;
+        for (int k = from; k <= to; k++) {
+            int s = index.segments[k];
+            double dx = x[s + 1] - x[s];
+            double dy = y[s + 1] - y[s];
+            double lengthSquared = dx * dx + dy * dy;
+            double t = lengthSquared > 0 ? ((px - x[s]) * dx + (py - y[s]) * dy) / lengthSquared : 0;
+            t = Math.max(0, Math.min(1, t));
+            double ex = x[s] + dx * t - px;
+            double ey = y[s] + dy * t - py;
+            double distanceSquared = ex * ex + ey * ey;
+            if (distanceSquared < bestDistanceSquared) {
+                bestDistanceSquared = distanceSquared;
+                bestSegment = s;
+                bestT = t;
+            }
+        }
+        double along = cumulative[bestSegment] + (cumulative[bestSegment + 1] - cumulative[bestSegment]) * bestT;
+        return new Projection(along, Math.sqrt(bestDistanceSquared), stepIndices[bestSegment], floorIds[bestSegment]);
+    }
+}
@@ -0,0 +1,147 @@
+package com.beco.demo.routing;
+
+import android.os.SystemClock;
+
+import com.becomap.sdk.models.BCRoute;
+
+import java.util.List;
+
+/**
+ * Steps the map through the floor segments of a multi-floor route as the user walks it.
+ *
+ * The first segment is shown when playback starts, by selecting its floor with the whole route kept
+ * drawn. Without position fixes playback follows the user's own moves: tapping a segment chip
+ * ({@link #select}) or changing the floor on the map ({@link #onFloorShown}) makes that segment the
+ * current one. Once fixes arrive ({@link #onFloorReached}) they take over and move it forward only;
+ * floor changes on the map are then just browsing, until the fixes stop for
+ * {@link #FIX_TAKEOVER_MS}. There is no timer, so the map never changes floor on its own.
+ *
+ * Must be used from the main thread.
+ */
+public class RoutePlaybackController {
+
+    /** How long after the last position fix floor changes on the map stay ignored. */
+    static final long FIX_TAKEOVER_MS = 15_000;
+
+    /**
+     * Performs the map changes for a segment.
+     */
+    public interface Display {
+        /**
+         * Selects the segment's floor, unless it is shown already. The route drawn stays the same;
+         * a segment index is not a route index and must not be passed to {@code showRoute}.
+         */
+        void showSegment(FloorSegment segment);
+    }
+
+    private final Display display;
+
+    private BCRoute route;
+    private List<FloorSegment> segments;
+    private int current = -1;
+    private long lastFixAt;
+    private boolean fixesSeen;
+
+    public RoutePlaybackController(Display display) {
+        this.display = display;
+    }
+
+    /**
+     * Shows the first segment of {@code route}. Routes on a single floor have nothing to step
+     * through and are ignored.
+     *
+     * @param segments The route's segments, see {@link FloorSegmentCalculator}
+     */
+    public void follow(BCRoute route, List<FloorSegment> segments) {
+        stop();
+        if (segments == null || segments.size() < 2) {
+            return;
+        }
+        this.route = route;
+        this.segments = segments;
+        show(0);
+    }
+
+    /**
+     * Forgets the route.
+     */
+    public void stop() {
+        route = null;
+        segments = null;
+        current = -1;
+        fixesSeen = false;
+    }
+
+    /**
+     * @return The route being played, or null
+     */
+    public BCRoute getRoute() {
+        return route;
+    }
+
+    /**
+     * @return The segment currently shown, or null
+     */
+    public FloorSegment getCurrentSegment() {
+        return segments != null && current >= 0 ? segments.get(current) : null;
+    }
+
+    /**
+     * Shows the segment the user picked, ahead or behind.
+     *
+     * @param index The segment's index, see {@link FloorSegment#getIndex()}
+     */
+    public void select(int index) {
+        if (segments != null && index >= 0 && index < segments.size()) {
+            show(index);
+        }
+    }
+
+    /**
+     * Moves on to the next segment on {@code floorId} if there is one ahead. Called for position
+     * fixes, which then drive playback. Earlier segments are never returned to.
+     */
+    public void onFloorReached(String floorId) {
+        if (segments == null || floorId == null) {
+            return;
+        }
+        fixesSeen = true;
+        lastFixAt = SystemClock.uptimeMillis();
+        for (int i = current + 1; i < segments.size(); i++) {
+            if (floorId.equals(segments.get(i).getFloorId())) {
+                show(i);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Follows a floor change on the map while no position fixes drive playback: the nearest
+     * segment on {@code floorId} ahead, or failing that behind, becomes the current one.
+     */
+    public void onFloorShown(String floorId) {
+        if (segments == null || floorId == null || floorId.equals(segments.get(current).getFloorId())) {
+            return;
+        }
+        if (fixesSeen && SystemClock.uptimeMillis() - lastFixAt < FIX_TAKEOVER_MS) {
+            return;
+        }
+        for (int i = current + 1; i < segments.size(); i++) {
+            if (floorId.equals(segments.get(i).getFloorId())) {
+                show(i);
+                return;
+            }
+        }
+        for (int i = current - 1; i >= 0; i--) {
+            if (floorId.equals(segments.get(i).getFloorId())) {
+                show(i);
+                return;
+            }
+        }
+    }
+
+    private void show(int index) {
+        current = index;
+        display.showSegment(segments.get(index));
+    }
+}
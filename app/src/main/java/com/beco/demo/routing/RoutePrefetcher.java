@@ -0,0 +1,184 @@
+package com.beco.demo.routing;
+
+import com.becomap.sdk.models.BCLocation;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Speculatively calculates routes towards a destination the user is looking at, so that picking a
+ * source afterwards can be answered from the {@link RouteCache}.
+ *
+ * Candidate sources are, in order: the last used source, other recently used sources and the
+ * site's main entrances. At most {@link #DEFAULT_BUDGET} routes are requested per destination and
+ * requests are only issued while the route channel is idle, one at a time.
+ */
+public class RoutePrefetcher {
+
+    public static final int DEFAULT_BUDGET = 4;
+    private static final int MAX_RECENT_SOURCES = 5;
+    private static final int MAX_ENTRANCES = 3;
+
+    /**
+     * Issues route requests on behalf of the prefetcher.
+     */
+    public interface RouteRequester {
+        /**
+         * @return true if no route request is currently in flight
+         */
+        boolean isIdle();
+
+        /**
+         * Starts a background route calculation. The result must only be cached, never displayed.
+         */
+        void requestSpeculativeRoute(RouteKey key, BCLocation source, BCLocation destination);
+    }
+
+    private final RouteCache routeCache;
+    private final RouteRequester requester;
+    private final int budget;
+
+    private final Deque<BCLocation> recentSources = new ArrayDeque<>();
+    private final List<BCLocation> entrances = new ArrayList<>();
+    private final Deque<Candidate> queue = new ArrayDeque<>();
+    private BCLocation destination;
+
+    public RoutePrefetcher(RouteCache routeCache, RouteRequester requester) {
+        this(routeCache, requester, DEFAULT_BUDGET);
+    }
+
+    public RoutePrefetcher(RouteCache routeCache, RouteRequester requester, int budget) {
+        this.routeCache = routeCache;
+        this.requester = requester;
+        this.budget = budget;
+    }
+
+    /**
+     * Picks the site's main entrances out of the loaded locations.
+     *
+     * @param locations All locations of the site
+     */
+    public void setLocations(List<BCLocation> locations) {
+        entrances.clear();
+        if (locations == null) {
+            return;
+        }
+        for (BCLocation location : locations) {
+            if (entrances.size() >= MAX_ENTRANCES) {
+                break;
+            }
+            if (isEntrance(location)) {
+                entrances.add(location);
+            }
+        }
+    }
+
+    /**
+     * Records a location the user routed from, making it the most likely next source.
+     */
+    public void noteSourceUsed(BCLocation source) {
+        if (source == null || source.getId() == null) {
+            return;
+        }
+        Iterator<BCLocation> it = recentSources.iterator();
+        while (it.hasNext()) {
+            if (source.getId().equals(it.next().getId())) {
+                it.remove();
+            }
+        }
+        recentSources.addFirst(source);
+        while (recentSources.size() > MAX_RECENT_SOURCES) {
+            recentSources.removeLast();
+        }
+    }
+
+    /**
+     * Starts prefetching routes to the given destination, replacing any previous destination.
+     */
+    public void prefetchTo(BCLocation destination) {
+        cancel();
+        if (destination == null || destination.getId() == null) {
+            return;
+        }
+        this.destination = destination;
+
+        // Recents first (most recent is the last source), then entrances; skip duplicates
+        Map<String, BCLocation> sources = new LinkedHashMap<>();
+        for (BCLocation source : recentSources) {
+            sources.put(source.getId(), source);
+        }
+        for (BCLocation entrance : entrances) {
+            if (!sources.containsKey(entrance.getId())) {
+                sources.put(entrance.getId(), entrance);
+            }
+        }
+
+        for (BCLocation source : sources.values()) {
+            if (queue.size() >= budget) {
+                break;
+            }
+            if (source.getId().equals(destination.getId())) {
+                continue;
+            }
+            RouteKey key = RouteKey.of(source, destination, null, RouteKey.DEFAULT_OPTIONS);
+            if (!routeCache.contains(key)) {
+                queue.add(new Candidate(key, source));
+            }
+        }
+
+        pump();
+    }
+
+    /**
+     * Drops all prefetches that have not been issued yet. A request already in flight still
+     * completes and lands in the cache, as the SDK offers no way to abort it.
+     */
+    public void cancel() {
+        queue.clear();
+        destination = null;
+    }
+
+    /**
+     * Issues the next queued prefetch if the route channel is idle. Call whenever a route request
+     * has settled.
+     */
+    public void pump() {
+        while (destination != null && !queue.isEmpty() && requester.isIdle()) {
+            Candidate next = queue.poll();
+            // It may have been calculated in the meantime
+            if (!routeCache.contains(next.key)) {
+                requester.requestSpeculativeRoute(next.key, next.source, destination);
+                return;
+            }
+        }
+    }
+
+    public boolean isActive() {
+        return destination != null && !queue.isEmpty();
+    }
+
+    private static boolean isEntrance(BCLocation location) {
+        String amenity = location.getAmenity();
+        if (amenity != null && amenity.toLowerCase(Locale.ROOT).contains("entrance")) {
+            return true;
+        }
+        String name = location.getName();
+        return name != null && name.toLowerCase(Locale.ROOT).contains("entrance");
+    }
+
+    private static final class Candidate {
+        final RouteKey key;
+        final BCLocation source;
+
+        Candidate(RouteKey key, BCLocation source) {
+            this.key = key;
+            this.source = source;
+        }
+    }
+}
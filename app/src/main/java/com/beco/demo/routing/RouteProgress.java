@@ -0,0 +1,87 @@
+package com.beco.demo.routing;
+
+/**
+ * How far along the displayed route the user is.
+ */
+public final class RouteProgress {
+
+    private final double fraction;
+    private final double remainingMeters;
+    private final double remainingSeconds;
+    private final int stepIndex;
+    private final String floorId;
+    private final double offsetMeters;
+
+    public RouteProgress(double fraction, double remainingMeters, double remainingSeconds,
+                         int stepIndex, String floorId, double offsetMeters) {
+        this.fraction = fraction;
+        this.remainingMeters = remainingMeters;
+        this.remainingSeconds = remainingSeconds;
+        this.stepIndex = stepIndex;
+        this.floorId = floorId;
+        this.offsetMeters = offsetMeters;
+    }
+
+    /**
+     * @return Part of the route walked, from 0 to 1
+     */
+    public double getFraction() {
+        return fraction;
+    }
+
+    /**
+     * @return Distance left to the destination, or NaN if the route has no distance
+     */
+    public double getRemainingMeters() {
+        return remainingMeters;
+    }
+
+    /**
+     * @return Walking time left to the destination, or NaN if the route has no time
+     */
+    public double getRemainingSeconds() {
+        return remainingSeconds;
+    }
+
+    /**
+     * @return Index of the route step being walked
+     */
+    public int getStepIndex() {
+        return stepIndex;
+    }
+
+    public String getFloorId() {
+        return floorId;
+    }
+
+    /**
+     * @return Distance between the last fix and the route
+     */
+    public double getOffsetMeters() {
+        return offsetMeters;
+    }
+
+    /**
+     * @return e.g. "120 m", or null if unknown
+     */
+    public String getFormattedRemainingDistance() {
+        return Double.isNaN(remainingMeters) ? null : Math.round(remainingMeters) + " m";
+    }
+
+    /**
+     * @return e.g. "3 min" or "< 1 min", or null if unknown
+     */
+    public String getFormattedRemainingTime() {
+        if (Double.isNaN(remainingSeconds)) {
+            return null;
+        }
+        long minutes = Math.round(remainingSeconds / 60.0);
+        return minutes < 1 ? "< 1 min" : minutes + " min";
+    }
+
+    @Override
+    public String toString() {
+        return "RouteProgress{" + Math.round(fraction * 100) + "%, " + remainingMeters + " m, "
+                + remainingSeconds + " s, step " + stepIndex + "}";
+    }
+}
@@ -0,0 +1,109 @@
+package com.beco.demo.routing;
+
+import com.becomap.sdk.models.BCRoute;
+
+/**
+ * Follows the user along the displayed route.
+ *
+ * Each position fix is matched to the route's {@link RoutePath}, starting from where the previous
+ * fix was matched. Remaining distance and time are the route's own distance and time scaled by the
+ * part of the path left, so they count down from the figures the route bar first showed.
+ *
+ * The app does not feed it yet: the map SDK reports neither the user's location nor the route's
+ * geometry, so both the path and the fixes have to come from another source.
+ *
+ * Has no Android dependencies; feed it from one thread.
+ */
+public class RouteProgressTracker {
+
+    public interface Listener {
+        /**
+         * Called for every fix that could be matched to the route.
+         */
+        void onProgress(RouteProgress progress);
+    }
+
+    private Listener listener;
+    private BCRoute route;
+    private RoutePath path;
+    private double routeMeters = Double.NaN;
+    private double routeSeconds = Double.NaN;
+    private double walkedMeters;
+    private RouteProgress lastProgress;
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Starts following a prepared path.
+     *
+     * @param route The route the path belongs to, may be null
+     * @param routeMeters The route's distance, or NaN to use the path length
+     * @param routeSeconds The route's walking time, or NaN if unknown
+     */
+    public void setPath(BCRoute route, RoutePath path, double routeMeters, double routeSeconds) {
+        this.route = route;
+        this.path = path;
+        this.routeMeters = finiteOrNaN(routeMeters);
+        this.routeSeconds = finiteOrNaN(routeSeconds);
+        this.walkedMeters = 0;
+        this.lastProgress = null;
+    }
+
+    /**
+     * Stops following the route.
+     */
+    public void clear() {
+        setPath(null, null, Double.NaN, Double.NaN);
+    }
+
+    public BCRoute getRoute() {
+        return route;
+    }
+
+    public RoutePath getPath() {
+        return path;
+    }
+
+    /**
+     * @return The progress at the last matched fix, or null
+     */
+    public RouteProgress getLastProgress() {
+        return lastProgress;
+    }
+
+    /**
+     * Matches a position fix to the route and reports the progress.
+     *
+     * @param floorId The floor the fix is on
+     * @return The progress, or null if no route is followed or the route does not cross the floor
+     */
+    public RouteProgress onPositionFix(String floorId, double latitude, double longitude) {
+        if (path == null) {
+            return null;
+        }
+        RoutePath.Projection projection = path.project(floorId, latitude, longitude, walkedMeters);
+        if (projection == null) {
+            return null;
+        }
+        walkedMeters = projection.getAlongMeters();
+
+        double pathLength = path.getLength();
+        double fraction = pathLength > 0 ? Math.min(1, walkedMeters / pathLength) : 1;
+        double totalMeters = Double.isNaN(routeMeters) ? pathLength : routeMeters;
+        RouteProgress progress = new RouteProgress(fraction,
+                totalMeters * (1 - fraction),
+                routeSeconds * (1 - fraction),
+                projection.getStepIndex(), projection.getFloorId(), projection.getOffsetMeters());
+        lastProgress = progress;
+        if (listener != null) {
+            listener.onProgress(progress);
+        }
+        return progress;
+    }
+
+    private static double finiteOrNaN(double value) {
+        return Double.isInfinite(value) ? Double.NaN : value;
+    }
+}
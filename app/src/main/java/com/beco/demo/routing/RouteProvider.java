@@ -0,0 +1,35 @@
+package com.beco.demo.routing;
+
+import com.becomap.sdk.models.BCLocation;
+import com.becomap.sdk.models.BCRoute;
+import com.becomap.sdk.models.BCRouteErrorCode;
+
+import java.util.List;
+
+/**
+ * Asynchronous source of routes for background work such as distance matrices.
+ * Results are never displayed; the provider decides when and how the requests reach the SDK.
+ */
+public interface RouteProvider {
+
+    interface Callback {
+        void onRouteCalculated(List<BCRoute> routes);
+
+        /**
+         * @param errorCode The SDK error, or null if the request could not be issued
+         */
+        void onRouteFailed(BCRouteErrorCode errorCode);
+    }
+
+    /**
+     * Requests a route with default options. The callback is invoked exactly once.
+     */
+    void requestRoute(BCLocation source, BCLocation destination, Callback callback);
+
+    /**
+     * Requests a route variant: {@code waypoints} shape the route and {@code optionsKey} identifies
+     * the variant in the route cache, see {@link RouteVariant}. The callback is invoked exactly once.
+     */
+    void requestRoute(BCLocation source, BCLocation destination, List<BCLocation> waypoints,
+                      String optionsKey, Callback callback);
+}
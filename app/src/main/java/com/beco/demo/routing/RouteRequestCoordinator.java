@@ -0,0 +1,433 @@
+package com.beco.demo.routing;
+
+import android.util.Log;
+
+import com.becomap.sdk.exceptions.BCMapException;
+import com.becomap.sdk.models.BCLocation;
+import com.becomap.sdk.models.BCRoute;
+import com.becomap.sdk.models.BCRouteErrorCode;
+import com.beco.demo.MainThread;
+import com.beco.demo.logging.EventLog;
+import com.beco.demo.logging.LogEvent;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Serialises all route requests onto the SDK's single route channel.
+ *
+ * The SDK reports results through one {@code BCRouteListener} without saying which request they
+ * belong to, so at most one request is kept in flight and every result is attributed to it.
+ * User requests are tagged with increasing sequence numbers; a burst of requests is coalesced so
+ * only the latest one is sent once the channel frees up, and results of superseded requests are
+ * cached but never delivered. Background requests ({@link RouteProvider}) run whenever no user
+ * request is waiting, and speculative requests (prefetching) only once the channel is fully idle.
+ * Every calculation replaces the engine's route set, so while a route is on screen the engine is
+ * held ({@link #holdEngine}) and background work that would replace it waits.
+ *
+ * Must be used from the main thread; forward the SDK callbacks through an
+ * {@link com.beco.demo.map.SdkCallbackDispatcher}.
+ */
+public class RouteRequestCoordinator implements RoutePrefetcher.RouteRequester, RouteProvider {
+
+    private static final String TAG = "RouteRequestCoordinator";
+    private static final LogEvent CACHE_HIT = LogEvent.debug(TAG, "#%d answered from cache: %s");
+    private static final LogEvent JOINED = LogEvent.debug(TAG, "#%d joins in-flight request #%d");
+    private static final LogEvent QUEUED = LogEvent.debug(TAG, "#%d queued behind #%d");
+    private static final LogEvent SUPERSEDED = LogEvent.debug(TAG, "Discarding result of superseded request #%d");
+
+    /**
+     * Performs the actual SDK call, typically
+     * {@code mapView.getRoute(source, destination, waypoints, null)}.
+     */
+    public interface RouteEngine {
+        void getRoute(BCLocation source, BCLocation destination, List<BCLocation> waypoints)
+                throws BCMapException;
+    }
+
+    public interface Listener {
+        /**
+         * Called when route details are known from the cache but the map engine does not hold the
+         * route set yet. {@link #onRouteReady} follows once it does.
+         */
+        void onRoutePreview(Request request, List<BCRoute> routes);
+
+        /**
+         * Called when the routes of the latest request are loaded in the map engine and can be shown.
+         */
+        void onRouteReady(Request request, List<BCRoute> routes);
+
+        /**
+         * Called when the latest request failed.
+         *
+         * @param errorCode The SDK error, or null if the SDK rejected the call outright
+         */
+        void onRouteFailed(Request request, BCRouteErrorCode errorCode);
+    }
+
+    /**
+     * A single route request, with everything needed to present its result captured at request time.
+     */
+    public static final class Request {
+        private final long sequence;
+        private final RouteKey key;
+        private final BCLocation source;
+        private final BCLocation destination;
+        private final List<BCLocation> waypoints;
+        private final String destinationLabel;
+        private final boolean speculative;
+        private final RouteProvider.Callback callback;
+
+        Request(long sequence, RouteKey key, BCLocation source, BCLocation destination,
+                List<BCLocation> waypoints, String destinationLabel, boolean speculative) {
+            this(sequence, key, source, destination, waypoints, destinationLabel, speculative, null);
+        }
+
+        Request(long sequence, RouteKey key, BCLocation source, BCLocation destination,
+                List<BCLocation> waypoints, String destinationLabel, boolean speculative,
+                RouteProvider.Callback callback) {
+            this.sequence = sequence;
+            this.key = key;
+            this.source = source;
+            this.destination = destination;
+            this.waypoints = waypoints;
+            this.destinationLabel = destinationLabel;
+            this.speculative = speculative;
+            this.callback = callback;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public RouteKey getKey() {
+            return key;
+        }
+
+        public BCLocation getSource() {
+            return source;
+        }
+
+        public BCLocation getDestination() {
+            return destination;
+        }
+
+        public List<BCLocation> getWaypoints() {
+            return waypoints;
+        }
+
+        public String getDestinationLabel() {
+            return destinationLabel;
+        }
+
+        public boolean isSpeculative() {
+            return speculative;
+        }
+    }
+
+    private final RouteCache routeCache;
+    private final RouteEngine engine;
+    private Listener listener;
+    private Runnable idleCallback;
+
+    private long nextSequence = 1;
+    private Request inFlight;           // Request the SDK is currently calculating
+    private Request latest;             // Latest user request that has not been answered yet
+    private RouteKey loadedKey;         // Route set the map engine currently holds
+    private RouteKey heldKey;           // Route set on screen, kept in the engine while set
+    private final Deque<Request> background = new ArrayDeque<>();
+
+    private int supersededCount;
+
+    public RouteRequestCoordinator(RouteCache routeCache, RouteEngine engine) {
+        this.routeCache = routeCache;
+        this.engine = engine;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Sets a callback that runs whenever the channel becomes idle, e.g. to continue prefetching.
+     */
+    public void setIdleCallback(Runnable idleCallback) {
+        this.idleCallback = idleCallback;
+    }
+
+    /**
+     * Requests a route for display. Supersedes every earlier request.
+     *
+     * @param source The start location
+     * @param destination The end location
+     * @param waypoints Intermediate stops, or null
+     * @param optionsKey Key of the {@link RouteVariant} the waypoints build, or null for defaults
+     * @param destinationLabel Label to present the result under
+     * @return The request, carrying its sequence number
+     */
+    public Request request(BCLocation source, BCLocation destination, List<BCLocation> waypoints,
+                           String optionsKey, String destinationLabel) {
+        RouteKey key = RouteKey.of(source, destination, waypoints, optionsKey);
+        Request request = new Request(nextSequence++, key, source, destination, waypoints,
+                destinationLabel, false);
+        latest = request;
+
+        List<BCRoute> cached = routeCache.get(key);
+        if (cached != null && key.equals(loadedKey)) {
+            EventLog.log(CACHE_HIT, key, request.sequence);
+            deliverReady(cached);
+            return request;
+        }
+        if (cached != null && listener != null) {
+            listener.onRoutePreview(request, cached);
+        }
+
+        if (inFlight == null) {
+            dispatch(request);
+        } else if (inFlight.key.equals(key)) {
+            // Already being calculated (possibly by a prefetch) - the result will be attributed to this request
+            EventLog.log(JOINED, request.sequence, inFlight.sequence);
+        } else {
+            // Coalesced: sent when the in-flight request settles, unless superseded again before that
+            EventLog.log(QUEUED, request.sequence, inFlight.sequence);
+        }
+        return request;
+    }
+
+    /**
+     * Forgets the pending user request. Its result, if it arrives, is cached but not delivered.
+     */
+    public void cancel() {
+        latest = null;
+    }
+
+    /**
+     * @return true if the request is still the one whose result will be delivered
+     */
+    public boolean isCurrent(Request request) {
+        return request != null && request == latest;
+    }
+
+    @Override
+    public boolean isIdle() {
+        return inFlight == null && latest == null && background.isEmpty() && heldKey == null;
+    }
+
+    /**
+     * Keeps the route set {@code key} in the map engine while it is on screen. Background requests
+     * wait unless they are answered from the cache or run between the same two locations, like the
+     * alternatives of the shown route; speculative requests are not sent. User requests are always
+     * sent.
+     */
+    public void holdEngine(RouteKey key) {
+        heldKey = key;
+    }
+
+    /**
+     * Lets waiting background work reach the engine again, e.g. when the route is closed.
+     */
+    public void releaseEngine() {
+        if (heldKey == null) {
+            return;
+        }
+        heldKey = null;
+        if (inFlight == null && latest == null) {
+            settle();
+        }
+    }
+
+    /**
+     * Queues a background route request. Answered immediately from the cache when possible,
+     * otherwise calculated once no user request is waiting. The result is never displayed.
+     */
+    @Override
+    public void requestRoute(BCLocation source, BCLocation destination, RouteProvider.Callback callback) {
+        requestRoute(source, destination, null, RouteKey.DEFAULT_OPTIONS, callback);
+    }
+
+    @Override
+    public void requestRoute(BCLocation source, BCLocation destination, List<BCLocation> waypoints,
+                             String optionsKey, RouteProvider.Callback callback) {
+        RouteKey key = RouteKey.of(source, destination, waypoints, optionsKey);
+        List<BCRoute> cached = routeCache.get(key);
+        if (cached != null) {
+            callback.onRouteCalculated(cached);
+            return;
+        }
+        background.add(new Request(nextSequence++, key, source, destination, waypoints, null, true,
+                callback));
+        if (inFlight == null && latest == null) {
+            settle();
+        }
+    }
+
+    /**
+     * Drops queued background requests, failing their callbacks.
+     */
+    public void cancelBackground() {
+        while (!background.isEmpty()) {
+            background.poll().callback.onRouteFailed(null);
+        }
+    }
+
+    @Override
+    public void requestSpeculativeRoute(RouteKey key, BCLocation source, BCLocation destination) {
+        if (!isIdle()) {
+            return;
+        }
+        dispatch(new Request(nextSequence++, key, source, destination, null, null, true));
+    }
+
+    /**
+     * @return The key of the route set the map engine currently holds, or null
+     */
+    public RouteKey getLoadedKey() {
+        return loadedKey;
+    }
+
+    /**
+     * Forgets what the map engine holds, e.g. after site data was reloaded.
+     */
+    public void resetEngineState() {
+        loadedKey = null;
+    }
+
+    /**
+     * @return Number of results that were discarded because a newer request superseded them
+     */
+    public int getSupersededCount() {
+        return supersededCount;
+    }
+
+    /**
+     * Forward of {@code BCRouteListener.onRouteCalculated}.
+     */
+    public void onRouteCalculated(List<BCRoute> routes) {
+        MainThread.check("onRouteCalculated");
+        Request completed = inFlight;
+        inFlight = null;
+        if (completed == null) {
+            Log.w(TAG, "Route result without a request in flight, ignoring");
+            settle();
+            return;
+        }
+
+        routeCache.put(completed.key, routes);
+        loadedKey = completed.key;
+        if (completed.callback != null) {
+            completed.callback.onRouteCalculated(routes);
+        }
+
+        if (latest != null && latest.key.equals(completed.key)) {
+            deliverReady(routes);
+        } else if (!completed.speculative) {
+            supersededCount++;
+            EventLog.log(SUPERSEDED, completed.sequence);
+        }
+        settle();
+    }
+
+    /**
+     * Forward of {@code BCRouteListener.onError}.
+     */
+    public void onRouteError(BCRouteErrorCode errorCode) {
+        MainThread.check("onRouteError");
+        Request completed = inFlight;
+        inFlight = null;
+        if (completed != null && completed.callback != null) {
+            completed.callback.onRouteFailed(errorCode);
+        }
+        if (completed != null && latest != null && latest.key.equals(completed.key)) {
+            Request failed = latest;
+            latest = null;
+            if (listener != null) {
+                listener.onRouteFailed(failed, errorCode);
+            }
+        }
+        settle();
+    }
+
+    private void dispatch(Request request) {
+        inFlight = request;
+        try {
+            engine.getRoute(request.source, request.destination, request.waypoints);
+        } catch (BCMapException e) {
+            Log.e(TAG, "Route request #" + request.sequence + " rejected", e);
+            inFlight = null;
+            if (request.callback != null) {
+                request.callback.onRouteFailed(null);
+            }
+            if (request == latest) {
+                latest = null;
+                if (listener != null) {
+                    listener.onRouteFailed(request, null);
+                }
+            }
+        }
+    }
+
+    private void deliverReady(List<BCRoute> routes) {
+        Request ready = latest;
+        latest = null;
+        if (listener != null) {
+            listener.onRouteReady(ready, routes);
+        }
+    }
+
+    /**
+     * Sends the latest unanswered request, then queued background requests, or reports the
+     * channel idle.
+     */
+    private void settle() {
+        if (inFlight != null) {
+            return;
+        }
+        Request next = latest;
+        if (next != null) {
+            List<BCRoute> cached = routeCache.get(next.key);
+            if (cached != null && next.key.equals(loadedKey)) {
+                deliverReady(cached);
+            } else {
+                dispatch(next);
+                if (inFlight != null) {
+                    return;
+                }
+            }
+        }
+        while (inFlight == null && latest == null) {
+            Request queued = pollBackground();
+            if (queued == null) {
+                break;
+            }
+            List<BCRoute> cached = routeCache.get(queued.key);
+            if (cached != null) {
+                queued.callback.onRouteCalculated(cached);
+            } else {
+                dispatch(queued);
+            }
+        }
+        if (isIdle() && idleCallback != null) {
+            idleCallback.run();
+        }
+    }
+
+    /**
+     * Takes the next background request allowed to run, see {@link #holdEngine}.
+     */
+    private Request pollBackground() {
+        Iterator<Request> it = background.iterator();
+        while (it.hasNext()) {
+            Request queued = it.next();
+            if (heldKey == null || routeCache.contains(queued.key)
+                    || (Objects.equals(queued.key.getSourceId(), heldKey.getSourceId())
+                        && Objects.equals(queued.key.getDestinationId(), heldKey.getDestinationId()))) {
+                it.remove();
+                return queued;
+            }
+        }
+        return null;
+    }
+}
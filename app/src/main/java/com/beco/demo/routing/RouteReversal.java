@@ -0,0 +1,55 @@
+package com.beco.demo.routing;
+
+import com.becomap.sdk.models.BCRoute;
+
+import java.util.List;
+
+/**
+ * Decides whether a calculated route can stand in for its reverse while the true reverse route is
+ * being calculated.
+ */
+public final class RouteReversal {
+
+    private RouteReversal() {
+    }
+
+    /**
+     * A route is treated as reversible when it stays on one floor. Floor changes may use one-way
+     * connectors such as escalators, so multi-floor routes always wait for the recalculated route.
+     *
+     * @param route The forward route
+     * @return true if walking the route backwards is a valid route
+     */
+    public static boolean isReversible(BCRoute route) {
+        if (route == null) {
+            return false;
+        }
+        if (route.isMultiFloor()) {
+            return false;
+        }
+        List<String> floors = route.getInvolvedFloors();
+        return floors == null || floors.size() <= 1;
+    }
+
+    /**
+     * Looks up a cached forward route that can be shown reversed.
+     *
+     * @param cache The route cache
+     * @param reverseKey Key of the wanted (reverse) route
+     * @return The forward route to show reversed, or null if none is cached or it is not reversible
+     */
+    public static BCRoute findReversibleForward(RouteCache cache, RouteKey reverseKey) {
+        if (!reverseKey.getWaypointIds().isEmpty()) {
+            // Waypoint order would have to be reversed as well; not worth a preview
+            return null;
+        }
+        RouteKey forwardKey = new RouteKey(reverseKey.getDestinationId(), reverseKey.getSourceId(),
+                null, reverseKey.getOptionsKey());
+        List<BCRoute> forward = cache.get(forwardKey);
+        if (forward == null || forward.isEmpty()) {
+            return null;
+        }
+        BCRoute route = forward.get(0);
+        return isReversible(route) ? route : null;
+    }
+}
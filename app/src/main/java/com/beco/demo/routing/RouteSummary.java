@@ -0,0 +1,50 @@
+package com.beco.demo.routing;
+
+import com.becomap.sdk.models.BCRoute;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The part of a route the route info bar shows: formatted distance and time and the floors it
+ * passes. Unlike {@link BCRoute} it can be stored and restored without the map engine.
+ */
+public final class RouteSummary {
+
+    private final String formattedDistance;
+    private final String formattedTime;
+    private final List<String> involvedFloors;
+
+    public RouteSummary(String formattedDistance, String formattedTime, List<String> involvedFloors) {
+        this.formattedDistance = formattedDistance;
+        this.formattedTime = formattedTime;
+        this.involvedFloors = involvedFloors != null
+                ? Collections.unmodifiableList(new ArrayList<>(involvedFloors))
+                : Collections.<String>emptyList();
+    }
+
+    public static RouteSummary of(BCRoute route) {
+        return new RouteSummary(route.getFormattedDistance(), route.getFormattedTime(),
+                route.isMultiFloor() ? route.getInvolvedFloors() : null);
+    }
+
+    public String getFormattedDistance() {
+        return formattedDistance;
+    }
+
+    public String getFormattedTime() {
+        return formattedTime;
+    }
+
+    /**
+     * @return Floor IDs in walking order, empty for single-floor routes
+     */
+    public List<String> getInvolvedFloors() {
+        return involvedFloors;
+    }
+
+    public boolean isMultiFloor() {
+        return involvedFloors.size() > 1;
+    }
+}
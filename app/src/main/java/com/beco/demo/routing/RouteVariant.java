@@ -0,0 +1,104 @@
+package com.beco.demo.routing;
+
+import com.becomap.sdk.models.BCLocation;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The kinds of route offered as alternatives. Each variant has a stable options key, used in
+ * {@link RouteKey}s and the route cache.
+ *
+ * Besides the endpoints, the only route parameter the app passes to {@code getRoute} is the
+ * waypoint list, so a variant is expressed through waypoints. This is the only place that knows
+ * how.
+ */
+public enum RouteVariant {
+
+    FASTEST(RouteKey.DEFAULT_OPTIONS, "Fastest"),
+    /**
+     * Routed through an elevator on the source floor. Only offered for multi-floor routes; the SDK
+     * does not say which connector the rest of the route uses, so it is not labelled step-free.
+     */
+    VIA_ELEVATOR("via-elevator", "Elevator");
+
+    private static final String[] ELEVATOR_KEYWORDS = {"elevator", "lift"};
+
+    private final String optionsKey;
+    private final String label;
+
+    RouteVariant(String optionsKey, String label) {
+        this.optionsKey = optionsKey;
+        this.label = label;
+    }
+
+    public String getOptionsKey() {
+        return optionsKey;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * @param locations All locations of the site
+     * @return Waypoints that turn a route from {@code source} to {@code destination} into this
+     *         variant, an empty list for the plain route, or null if the variant cannot be built
+     *         for the pair
+     */
+    public List<BCLocation> waypointsFor(BCLocation source, BCLocation destination,
+                                         List<BCLocation> locations) {
+        switch (this) {
+            case VIA_ELEVATOR:
+                BCLocation elevator = findElevator(locations, source.getFloorId());
+                return elevator != null && !elevator.getId().equals(destination.getId())
+                        ? Collections.singletonList(elevator) : null;
+            case FASTEST:
+            default:
+                return Collections.emptyList();
+        }
+    }
+
+    /**
+     * @return The variant with the given options key, or null if the key is unknown
+     */
+    public static RouteVariant fromOptionsKey(String optionsKey) {
+        for (RouteVariant variant : values()) {
+            if (variant.optionsKey.equals(optionsKey)) {
+                return variant;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds an elevator by amenity or name, since the SDK model has no elevator type. Locations
+     * carry no position the app can compare, so the first elevator on the floor is used.
+     */
+    private static BCLocation findElevator(List<BCLocation> locations, String floorId) {
+        if (locations == null || floorId == null) {
+            return null;
+        }
+        for (BCLocation location : locations) {
+            if (location.getId() != null && floorId.equals(location.getFloorId())
+                    && (isElevator(location.getAmenity()) || isElevator(location.getName()))) {
+                return location;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isElevator(String text) {
+        if (text == null) {
+            return false;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        for (String keyword : ELEVATOR_KEYWORDS) {
+            if (lower.contains(keyword)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,78 @@
+package com.beco.demo.routing;
+
+import java.util.Random;
+
+/**
+ * Synthesizes the position fixes of someone walking a {@link RoutePath}.
+ *
+ * Fixes are taken at a fixed sample rate while walking at a constant speed, each displaced by
+ * Gaussian noise, and the last fix is at the destination. Floor changes take no time. With the
+ * same seed a stream always produces the same fixes. Has no Android dependencies, so it also runs
+ * in unit tests.
+ */
+public class SimulatedPositionStream {
+
+    private final RoutePath path;
+    private final double speedMetersPerSecond;
+    private final double noiseMeters;
+    private final long intervalMillis;
+    private final Random random;
+    private int sample;
+    private boolean finished;
+
+    /**
+     * @param speedMetersPerSecond Walking speed, must be positive
+     * @param noiseMeters Standard deviation of the position error, 0 for exact fixes
+     * @param sampleRateHz Fixes per second, must be positive
+     * @param seed Seed of the noise
+     */
+    public SimulatedPositionStream(RoutePath path, double speedMetersPerSecond, double noiseMeters,
+                                   double sampleRateHz, long seed) {
+        if (speedMetersPerSecond <= 0 || sampleRateHz <= 0 || noiseMeters < 0) {
+            throw new IllegalArgumentException("Speed and sample rate must be positive, noise must not be negative");
+        }
+        this.path = path;
+        this.speedMetersPerSecond = speedMetersPerSecond;
+        this.noiseMeters = noiseMeters;
+        this.intervalMillis = Math.max(1, Math.round(1000.0 / sampleRateHz));
+        this.random = new Random(seed);
+    }
+
+    /**
+     * @return Time between two fixes
+     */
+    public long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    public boolean hasNext() {
+        return !finished;
+    }
+
+    /**
+     * @return The next fix; the one at the destination is the last
+     */
+    public PositionFix next() {
+        if (finished) {
+            throw new IllegalStateException("The destination has been reached");
+        }
+        long time = sample * intervalMillis;
+        double along = speedMetersPerSecond * time / 1000.0;
+        if (along >= path.getLength()) {
+            along = path.getLength();
+            finished = true;
+        }
+        sample++;
+
+        RoutePath.PathPoint point = path.pointAt(along);
+        double latitude = point.getLatitude();
+        double longitude = point.getLongitude();
+        if (noiseMeters > 0) {
+            double north = random.nextGaussian() * noiseMeters;
+            double east = random.nextGaussian() * noiseMeters;
+            latitude += Math.toDegrees(north / RoutePath.EARTH_RADIUS_METERS);
+            longitude += Math.toDegrees(east / (RoutePath.EARTH_RADIUS_METERS * Math.cos(Math.toRadians(latitude))));
+        }
+        return new PositionFix(time, point.getFloorId(), latitude, longitude);
+    }
+}
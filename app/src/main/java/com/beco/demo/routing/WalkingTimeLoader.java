@@ -0,0 +1,233 @@
+package com.beco.demo.routing;
+
+import com.becomap.sdk.models.BCLocation;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Loads walking metrics from one origin to the locations a list is currently showing.
+ *
+ * Rows ask for their destination when they are bound and drop the request when they are recycled,
+ * so only rows the list displays or prefetches cost a route. Pending requests are sent one at a time,
+ * closest to the visible range first. Results are kept per origin/destination pair and survive
+ * changes of the query, so rows that come back are answered from memory. While suspended, requests
+ * are only queued; cached results are still delivered.
+ *
+ * Must be used from the main thread, like the {@link RouteMetricsProvider} it is given.
+ */
+public class WalkingTimeLoader {
+
+    private static final int MAX_CACHED_PAIRS = 256;
+
+    public interface Listener {
+        /**
+         * @param destination The location the metrics were requested for
+         * @param metrics Walking metrics from the origin, {@link RouteMetrics#UNREACHABLE} if there is no route
+         */
+        void onWalkingTime(BCLocation destination, RouteMetrics metrics);
+    }
+
+    private static final class Pending {
+        final BCLocation destination;
+        int position;
+        Listener listener;
+
+        Pending(BCLocation destination, int position, Listener listener) {
+            this.destination = destination;
+            this.position = position;
+            this.listener = listener;
+        }
+    }
+
+    private final RouteMetricsProvider provider;
+    private final LinkedHashMap<RouteKey, RouteMetrics> cache =
+            new LinkedHashMap<RouteKey, RouteMetrics>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<RouteKey, RouteMetrics> eldest) {
+                    return size() > MAX_CACHED_PAIRS;
+                }
+            };
+    private final Map<String, Pending> pending = new HashMap<>();
+
+    private BCLocation origin;
+    private Pending inFlight;
+    private int generation;
+    private int firstVisible;
+    private int lastVisible = Integer.MAX_VALUE;
+    private boolean suspended;
+
+    public WalkingTimeLoader(RouteMetricsProvider provider) {
+        this.provider = provider;
+    }
+
+    /**
+     * Sets the location walking times are measured from. Changing it drops all pending requests.
+     */
+    public void setOrigin(BCLocation origin) {
+        String oldId = this.origin != null ? this.origin.getId() : null;
+        String newId = origin != null ? origin.getId() : null;
+        this.origin = origin;
+        if (oldId == null ? newId != null : !oldId.equals(newId)) {
+            cancelAll();
+        }
+    }
+
+    public BCLocation getOrigin() {
+        return origin;
+    }
+
+    /**
+     * @return Cached metrics from the origin to {@code destination}, or null if not known yet
+     */
+    public RouteMetrics getCached(BCLocation destination) {
+        if (origin == null || destination == null) {
+            return null;
+        }
+        if (origin.getId().equals(destination.getId())) {
+            return new RouteMetrics(0, 0);
+        }
+        return cache.get(key(destination));
+    }
+
+    /**
+     * Requests metrics for the row at {@code position}. Calling again for a pending destination only
+     * updates its position and listener. Cached results are delivered immediately.
+     */
+    public void request(BCLocation destination, int position, Listener listener) {
+        if (origin == null || destination == null || destination.getId() == null) {
+            return;
+        }
+        RouteMetrics cached = getCached(destination);
+        if (cached != null) {
+            listener.onWalkingTime(destination, cached);
+            return;
+        }
+        Pending existing = pending.get(destination.getId());
+        if (existing != null) {
+            existing.position = position;
+            existing.listener = listener;
+        } else {
+            pending.put(destination.getId(), new Pending(destination, position, listener));
+        }
+        pump();
+    }
+
+    /**
+     * Drops the request for a row that is no longer shown. A request already sent still completes
+     * and is cached, but its listener is not called.
+     */
+    public void cancel(BCLocation destination) {
+        if (destination == null || destination.getId() == null) {
+            return;
+        }
+        pending.remove(destination.getId());
+        if (inFlight != null && destination.getId().equals(inFlight.destination.getId())) {
+            inFlight.listener = null;
+        }
+    }
+
+    /**
+     * Drops every request, e.g. when the list goes away.
+     */
+    public void cancelAll() {
+        pending.clear();
+        if (inFlight != null) {
+            inFlight.listener = null;
+        }
+    }
+
+    /**
+     * Tells the loader which adapter positions are on screen so the nearest rows are served first.
+     */
+    public void setVisibleRange(int first, int last) {
+        if (first < 0 || last < first) {
+            return;
+        }
+        firstVisible = first;
+        lastVisible = last;
+    }
+
+    /**
+     * Holds back new requests while the route engine cannot serve them, e.g. while the map is
+     * paused. Queued rows keep their place and are served once resumed.
+     */
+    public void setSuspended(boolean suspended) {
+        this.suspended = suspended;
+        if (!suspended) {
+            pump();
+        }
+    }
+
+    /**
+     * Drops cached metrics, e.g. when site data changes.
+     */
+    public void invalidate() {
+        cache.clear();
+        generation++;
+    }
+
+    private void pump() {
+        if (suspended || inFlight != null || pending.isEmpty()) {
+            return;
+        }
+        Pending next = null;
+        int bestDistance = Integer.MAX_VALUE;
+        for (Pending candidate : pending.values()) {
+            int distance = distanceFromVisible(candidate.position);
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                next = candidate;
+            }
+        }
+        pending.remove(next.destination.getId());
+        dispatch(next);
+    }
+
+    private void dispatch(final Pending request) {
+        final BCLocation from = origin;
+        final RouteKey key = key(request.destination);
+        final int requestGeneration = generation;
+        inFlight = request;
+        provider.requestMetrics(from, request.destination, new RouteMetricsProvider.Callback() {
+            @Override
+            public void onMetrics(RouteMetrics metrics) {
+                if (requestGeneration == generation) {
+                    cache.put(key, metrics);
+                }
+                settle(request, metrics);
+            }
+
+            @Override
+            public void onFailed() {
+                settle(request, null);
+            }
+        });
+    }
+
+    private void settle(Pending request, RouteMetrics metrics) {
+        if (inFlight == request) {
+            inFlight = null;
+        }
+        Listener listener = request.listener;
+        if (listener != null && metrics != null) {
+            listener.onWalkingTime(request.destination, metrics);
+        }
+        pump();
+    }
+
+    private int distanceFromVisible(int position) {
+        if (position < firstVisible) {
+            return firstVisible - position;
+        }
+        if (position > lastVisible) {
+            return position - lastVisible;
+        }
+        return 0;
+    }
+
+    private RouteKey key(BCLocation destination) {
+        return RouteKey.of(origin, destination, null, RouteKey.DEFAULT_OPTIONS);
+    }
+}
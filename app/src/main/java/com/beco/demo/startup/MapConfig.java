@@ -0,0 +1,50 @@
+package com.beco.demo.startup;
+
+import com.becomap.sdk.models.BCMapOptions;
+
+/**
+ * Credentials and site settings the map is initialised with.
+ *
+ * The options are built once, by {@link #load()} during startup or on first use, and shared.
+ */
+public final class MapConfig {
+
+    private static final String CLIENT_ID = "client-id";
+    private static final String CLIENT_SECRET = "client-secret";
+    private static final String SITE_IDENTIFIER = "site-identifier";
+    private static final String BACKGROUND_COLOR = "#E5E5E5";
+
+    private static volatile BCMapOptions.Init initOptions;
+    private static volatile BCMapOptions.SiteOptions siteOptions;
+
+    private MapConfig() {
+    }
+
+    /**
+     * Builds the options. Safe to call from any thread.
+     */
+    public static void load() {
+        if (initOptions == null) {
+            initOptions = BCMapOptions.Init.builder()
+                    .setClientId(CLIENT_ID)
+                    .setClientSecret(CLIENT_SECRET)
+                    .setSiteIdentifier(SITE_IDENTIFIER)
+                    .build();
+        }
+        if (siteOptions == null) {
+            siteOptions = BCMapOptions.SiteOptions.builder()
+                    .setBackgroundColor(BACKGROUND_COLOR)
+                    .build();
+        }
+    }
+
+    public static BCMapOptions.Init initOptions() {
+        load();
+        return initOptions;
+    }
+
+    public static BCMapOptions.SiteOptions siteOptions() {
+        load();
+        return siteOptions;
+    }
+}
@@ -0,0 +1,207 @@
+package com.beco.demo.startup;
+
+import android.content.Context;
+import android.content.MutableContextWrapper;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.becomap.sdk.BCMapView;
+import com.becomap.sdk.listeners.BCMapViewListener;
+import com.becomap.sdk.models.BCInitErrorCode;
+import com.becomap.sdk.models.BCLocation;
+import com.becomap.sdk.models.BCMapFloor;
+import com.becomap.sdk.models.BCMapViewOptions;
+import com.becomap.sdk.models.BCSite;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Initialises the map while the splash screen shows, so the main screen does not start from zero.
+ *
+ * The SDK initialises through its view, so the preloader creates a {@link BCMapView} on the
+ * application context and starts it. Callbacks that arrive before the main screen takes the view
+ * are recorded and replayed to it in order; after that they are passed straight on.
+ *
+ * Use from the main thread; SDK callbacks may arrive on any thread.
+ */
+public final class MapPreloader {
+
+    private static final String TAG = "MapPreloader";
+
+    public interface ReadyListener {
+        /**
+         * @param success False if the map failed to initialise
+         */
+        void onMapReady(boolean success);
+    }
+
+    /**
+     * A callback to replay.
+     */
+    private interface Event {
+        void replay(BCMapViewListener listener);
+    }
+
+    private static MapPreloader instance;
+
+    public static MapPreloader get() {
+        if (instance == null) {
+            instance = new MapPreloader();
+        }
+        return instance;
+    }
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Object lock = new Object();
+
+    private BCMapView mapView;
+    private volatile int session;
+    private long startedAt;
+    private ReadyListener readyListener;
+    private boolean ready;
+    private boolean success;
+
+    // Guarded by lock
+    private final List<Event> recorded = new ArrayList<>();
+    private BCMapViewListener target;
+
+    private final BCMapViewListener recorder = new BCMapViewListener() {
+        @Override
+        public void onRenderComplete(BCSite site) {
+            StartupTrace.mark(StartupTrace.RENDER_COMPLETE);
+            record(listener -> listener.onRenderComplete(site));
+            signalReady(true);
+        }
+
+        @Override
+        public void onInitError(BCInitErrorCode errorCode) {
+            record(listener -> listener.onInitError(errorCode));
+            signalReady(false);
+        }
+
+        @Override
+        public void onFloorChanged(BCMapFloor floor) {
+            record(listener -> listener.onFloorChanged(floor));
+        }
+
+        @Override
+        public void onViewChange(BCMapViewOptions viewOptions, long timestamp) {
+            // Not recorded - the camera is reported again once the map is on screen
+            BCMapViewListener listener;
+            synchronized (lock) {
+                listener = target;
+            }
+            if (listener != null) {
+                listener.onViewChange(viewOptions, timestamp);
+            }
+        }
+
+        @Override
+        public void onLocationsSelected(List<BCLocation> locations, long timestamp) {
+            record(listener -> listener.onLocationsSelected(locations, timestamp));
+        }
+
+        @Override
+        public void onAppDataLoaded() {
+            StartupTrace.mark(StartupTrace.APP_DATA_LOADED);
+            record(BCMapViewListener::onAppDataLoaded);
+            signalReady(true);
+        }
+    };
+
+    private MapPreloader() {
+    }
+
+    /**
+     * Creates the map view and starts initialising it, unless that has been done already.
+     */
+    public void start(Context context) {
+        if (mapView != null) {
+            return;
+        }
+        session++;
+        startedAt = SystemClock.uptimeMillis();
+        ready = false;
+        synchronized (lock) {
+            recorded.clear();
+            target = null;
+        }
+        // Rebased onto the activity that takes the view
+        mapView = new BCMapView(new MutableContextWrapper(context.getApplicationContext()));
+        mapView.setListener(recorder);
+        StartupTrace.beginSection(StartupTrace.INITIALISE_MAP);
+        mapView.initialiseMap(MapConfig.initOptions(), MapConfig.siteOptions());
+        StartupTrace.endSection(StartupTrace.INITIALISE_MAP);
+        Log.d(TAG, "Map initialisation started");
+    }
+
+    /**
+     * Calls {@code listener} on the main thread once the map has rendered or loaded its data, or
+     * failed. Called right away if that has happened already.
+     */
+    public void setReadyListener(ReadyListener listener) {
+        this.readyListener = listener;
+        if (listener != null && ready) {
+            listener.onMapReady(success);
+        }
+    }
+
+    /**
+     * Hands the preloaded map view over to an activity.
+     *
+     * @param listener Receives the recorded callbacks now and later ones as they arrive
+     * @return The map view, or null if none was preloaded; either way the preloader lets go of it
+     */
+    public BCMapView takeMapView(Context activityContext, BCMapViewListener listener) {
+        BCMapView taken = mapView;
+        if (taken == null) {
+            return null;
+        }
+        mapView = null;
+        readyListener = null;
+        ((MutableContextWrapper) taken.getContext()).setBaseContext(activityContext);
+        synchronized (lock) {
+            for (Event event : recorded) {
+                event.replay(listener);
+            }
+            Log.d(TAG, "Handed over map view with " + recorded.size() + " recorded callbacks, "
+                    + (SystemClock.uptimeMillis() - startedAt) + " ms after start");
+            recorded.clear();
+            target = listener;
+            // From here on the SDK calls the activity directly
+            taken.setListener(listener);
+        }
+        return taken;
+    }
+
+    private void record(Event event) {
+        BCMapViewListener listener;
+        synchronized (lock) {
+            listener = target;
+            if (listener == null) {
+                recorded.add(event);
+                return;
+            }
+        }
+        event.replay(listener);
+    }
+
+    private void signalReady(boolean succeeded) {
+        final int signalSession = session;
+        mainHandler.post(() -> {
+            if (ready || signalSession != session) {
+                return;
+            }
+            ready = true;
+            success = succeeded;
+            Log.d(TAG, "Map " + (succeeded ? "ready" : "failed") + " after "
+                    + (SystemClock.uptimeMillis() - startedAt) + " ms");
+            if (readyListener != null) {
+                readyListener.onMapReady(succeeded);
+            }
+        });
+    }
+}
@@ -0,0 +1,233 @@
+package com.beco.demo.startup;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs startup tasks as soon as the tasks they depend on are done.
+ *
+ * Tasks without a dependency between them run at the same time on the given executor, or on the
+ * main thread for tasks that need it. Every task's start and end are recorded; once all are done
+ * the report names the critical path, the chain of tasks that decided how long startup took.
+ *
+ * Add tasks and start the graph on the main thread. A task that throws is logged and counts as
+ * done, so the tasks after it still run and must cope with missing results.
+ */
+public final class StartupGraph {
+
+    private static final String TAG = "StartupGraph";
+
+    public interface Listener {
+        /**
+         * Called on the thread that finished the last task.
+         */
+        void onFinished(Report report);
+    }
+
+    /**
+     * Timing of a finished graph.
+     */
+    public static final class Report {
+        private final long totalNanos;
+        private final long criticalPathNanos;
+        private final List<String> criticalPath;
+        private final String summary;
+
+        Report(long totalNanos, long criticalPathNanos, List<String> criticalPath, String summary) {
+            this.totalNanos = totalNanos;
+            this.criticalPathNanos = criticalPathNanos;
+            this.criticalPath = criticalPath;
+            this.summary = summary;
+        }
+
+        /**
+         * @return Time from the start of the graph to the end of its last task
+         */
+        public long getTotalMillis() {
+            return totalNanos / 1_000_000;
+        }
+
+        /**
+         * @return Time spent running the tasks of the critical path, without waiting between them
+         */
+        public long getCriticalPathMillis() {
+            return criticalPathNanos / 1_000_000;
+        }
+
+        /**
+         * @return Names of the tasks on the critical path, first to last
+         */
+        public List<String> getCriticalPath() {
+            return criticalPath;
+        }
+
+        @Override
+        public String toString() {
+            return summary;
+        }
+    }
+
+    private static final class Task {
+        final String name;
+        final Runnable work;
+        final boolean onMainThread;
+        final String[] dependencies;
+        final List<Task> dependents = new ArrayList<>();
+        final AtomicInteger waitingFor = new AtomicInteger();
+        volatile long startNanos;
+        volatile long endNanos;
+
+        Task(String name, Runnable work, boolean onMainThread, String[] dependencies) {
+            this.name = name;
+            this.work = work;
+            this.onMainThread = onMainThread;
+            this.dependencies = dependencies;
+        }
+    }
+
+    private final Executor executor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, Task> tasks = new LinkedHashMap<>();
+    private final AtomicInteger remaining = new AtomicInteger();
+    private Listener listener;
+    private long startNanos;
+
+    /**
+     * @param executor Runs the tasks that do not need the main thread; bound its size to what
+     *                 startup should use of the device
+     */
+    public StartupGraph(Executor executor) {
+        this.executor = executor;
+    }
+
+    public StartupGraph setListener(Listener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * Adds a task that runs on the executor.
+     *
+     * @param dependencies Names of tasks that must finish first; add those before this one
+     */
+    public StartupGraph add(String name, Runnable work, String... dependencies) {
+        return add(name, work, false, dependencies);
+    }
+
+    /**
+     * Adds a task that runs on the main thread.
+     */
+    public StartupGraph addOnMainThread(String name, Runnable work, String... dependencies) {
+        return add(name, work, true, dependencies);
+    }
+
+    public void start() {
+        startNanos = System.nanoTime();
+        remaining.set(tasks.size());
+        List<Task> ready = new ArrayList<>();
+        for (Task task : tasks.values()) {
+            task.waitingFor.set(task.dependencies.length);
+            if (task.dependencies.length == 0) {
+                ready.add(task);
+            }
+        }
+        for (Task task : ready) {
+            schedule(task);
+        }
+    }
+
+    private StartupGraph add(String name, Runnable work, boolean onMainThread, String[] dependencies) {
+        if (tasks.containsKey(name)) {
+            throw new IllegalArgumentException("Duplicate startup task " + name);
+        }
+        Task task = new Task(name, work, onMainThread, dependencies);
+        for (String dependency : dependencies) {
+            // Dependencies must exist already, which also rules out cycles
+            Task before = tasks.get(dependency);
+            if (before == null) {
+                throw new IllegalArgumentException(name + " depends on unknown task " + dependency);
+            }
+            before.dependents.add(task);
+        }
+        tasks.put(name, task);
+        return this;
+    }
+
+    private void schedule(Task task) {
+        Runnable run = () -> run(task);
+        if (task.onMainThread) {
+            mainHandler.post(run);
+        } else {
+            executor.execute(run);
+        }
+    }
+
+    private void run(Task task) {
+        task.startNanos = System.nanoTime();
+        try {
+            task.work.run();
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Startup task " + task.name + " failed", e);
+        }
+        task.endNanos = System.nanoTime();
+
+        for (Task dependent : task.dependents) {
+            if (dependent.waitingFor.decrementAndGet() == 0) {
+                schedule(dependent);
+            }
+        }
+        if (remaining.decrementAndGet() == 0) {
+            finish();
+        }
+    }
+
+    private void finish() {
+        // Walk back from the task that ended last, always through the dependency that ended last
+        Task last = null;
+        for (Task task : tasks.values()) {
+            if (last == null || task.endNanos > last.endNanos) {
+                last = task;
+            }
+        }
+        List<String> path = new ArrayList<>();
+        long pathNanos = 0;
+        StringBuilder chain = new StringBuilder();
+        for (Task task = last; task != null; ) {
+            path.add(0, task.name);
+            pathNanos += task.endNanos - task.startNanos;
+            chain.insert(0, " > " + task.name + " " + (task.endNanos - task.startNanos) / 1_000_000 + " ms");
+            Task latest = null;
+            for (String dependency : task.dependencies) {
+                Task before = tasks.get(dependency);
+                if (latest == null || before.endNanos > latest.endNanos) {
+                    latest = before;
+                }
+            }
+            task = latest;
+        }
+
+        StringBuilder summary = new StringBuilder();
+        long totalNanos = last != null ? last.endNanos - startNanos : 0;
+        summary.append("Startup took ").append(totalNanos / 1_000_000).append(" ms, critical path ")
+                .append(pathNanos / 1_000_000).append(" ms:").append(chain.length() > 0 ? chain.substring(2) : " -");
+        for (Task task : tasks.values()) {
+            summary.append("\n  ").append(task.name)
+                    .append(": waited ").append((task.startNanos - startNanos) / 1_000_000)
+                    .append(" ms, ran ").append((task.endNanos - task.startNanos) / 1_000_000).append(" ms")
+                    .append(task.onMainThread ? " on the main thread" : "");
+        }
+        Report report = new Report(totalNanos, pathNanos, path, summary.toString());
+        Log.i(TAG, report.toString());
+        if (listener != null) {
+            listener.onFinished(report);
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.beco.demo.startup;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.Process;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+
+import com.beco.demo.BuildConfig;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Timeline of a cold start, from the process starting to the first route on the map.
+ *
+ * Phases are timed on {@link SystemClock#elapsedRealtimeNanos()} from the start of the process
+ * and show up as trace sections in system traces. Each phase is recorded the first time it
+ * happens in the process, so an activity recreated later does not move the timeline.
+ *
+ * Once search is ready the timeline is written as JSON to {@code files/startup_traces}, one file
+ * per launch, and written again when the first route is shown. Diff the files of two builds to
+ * see where launch time went.
+ *
+ * Safe to call from any thread.
+ */
+public final class StartupTrace {
+
+    private static final String TAG = "StartupTrace";
+
+    public static final String APPLICATION_CREATE = "Application.onCreate";
+    public static final String SPLASH_CREATE = "SplashActivity.onCreate";
+    public static final String MAIN_CREATE = "MainActivity.onCreate";
+    public static final String INITIALISE_MAP = "initialiseMap";
+    public static final String RENDER_COMPLETE = "onRenderComplete";
+    public static final String APP_DATA_LOADED = "onAppDataLoaded";
+    public static final String SEARCH_READY = "search-ready";
+    public static final String FIRST_ROUTE_READY = "first-route-ready";
+
+    private static final int FORMAT_VERSION = 1;
+    private static final String TRACES_DIR = "startup_traces";
+    private static final int MAX_TRACES = 20;
+    // Spans the launch in system traces, from the process start to search being ready
+    private static final String LAUNCH_SECTION = "launch";
+    private static final int LAUNCH_COOKIE = 0;
+
+    private static final class Phase {
+        final String name;
+        final String thread;
+        final long startNanos;
+        final boolean section;
+        long endNanos = -1;
+
+        Phase(String name, long startNanos, boolean section) {
+            this.name = name;
+            this.thread = Thread.currentThread().getName();
+            this.startNanos = startNanos;
+            this.section = section;
+        }
+    }
+
+    private static final Object lock = new Object();
+
+    // Guarded by lock
+    private static final List<Phase> phases = new ArrayList<>();
+    private static File tracesDir;
+    private static long originNanos;
+    private static long launchedAtMillis;
+    private static boolean finished;
+
+    private static ExecutorService diskExecutor;
+
+    private StartupTrace() {
+    }
+
+    /**
+     * Starts the timeline. Call first thing in {@code Application.onCreate}.
+     */
+    public static void start(Context context) {
+        long now = SystemClock.elapsedRealtimeNanos();
+        synchronized (lock) {
+            if (tracesDir != null) {
+                return;
+            }
+            tracesDir = new File(context.getFilesDir(), TRACES_DIR);
+            // The process was forked before any of our code ran; count from there
+            originNanos = Process.getStartElapsedRealtime() * 1_000_000L;
+            if (originNanos <= 0 || originNanos > now) {
+                originNanos = now;
+            }
+            launchedAtMillis = System.currentTimeMillis() - (now - originNanos) / 1_000_000;
+            diskExecutor = Executors.newSingleThreadExecutor();
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.beginAsyncSection(LAUNCH_SECTION, LAUNCH_COOKIE);
+        }
+    }
+
+    /**
+     * Starts timing a phase that ends on the same thread. Pair with {@link #endSection}; sections
+     * nest like {@link Trace#beginSection}.
+     */
+    public static void beginSection(String name) {
+        Trace.beginSection(name);
+        long now = SystemClock.elapsedRealtimeNanos();
+        synchronized (lock) {
+            if (!finished && find(name) == null) {
+                phases.add(new Phase(name, now, true));
+            }
+        }
+    }
+
+    public static void endSection(String name) {
+        long now = SystemClock.elapsedRealtimeNanos();
+        synchronized (lock) {
+            Phase phase = find(name);
+            if (phase != null && phase.endNanos < 0) {
+                phase.endNanos = now;
+            }
+        }
+        Trace.endSection();
+    }
+
+    /**
+     * Records the moment a milestone is reached. Reaching search-ready or first-route-ready writes
+     * the timeline.
+     */
+    public static void mark(String name) {
+        long now = SystemClock.elapsedRealtimeNanos();
+        synchronized (lock) {
+            if (finished || find(name) != null) {
+                return;
+            }
+            phases.add(new Phase(name, now, false));
+            if (FIRST_ROUTE_READY.equals(name)) {
+                finished = true;
+            }
+            if (SEARCH_READY.equals(name) || FIRST_ROUTE_READY.equals(name)) {
+                export();
+            }
+        }
+        // A zero-length section marks the moment in system traces
+        Trace.beginSection(name);
+        Trace.endSection();
+        if (SEARCH_READY.equals(name) && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.endAsyncSection(LAUNCH_SECTION, LAUNCH_COOKIE);
+        }
+    }
+
+    private static Phase find(String name) {
+        for (Phase phase : phases) {
+            if (phase.name.equals(name)) {
+                return phase;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Writes the timeline so far on the disk thread. Call with the lock held.
+     */
+    private static void export() {
+        if (tracesDir == null) {
+            Log.w(TAG, "Not started - timeline not written");
+            return;
+        }
+        final byte[] json = toJson().getBytes(StandardCharsets.UTF_8);
+        final File dir = tracesDir;
+        final File file = new File(dir, "launch-" + launchedAtMillis + ".json");
+        diskExecutor.execute(() -> {
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                Log.e(TAG, "Could not create " + dir);
+                return;
+            }
+            if (write(file, json)) {
+                Log.i(TAG, "Launch timeline written to " + file);
+            }
+            prune(dir);
+        });
+    }
+
+    private static String toJson() {
+        List<Phase> sorted = new ArrayList<>(phases);
+        sorted.sort((a, b) -> Long.compare(a.startNanos, b.startNanos));
+
+        StringBuilder json = new StringBuilder(256 + 96 * sorted.size());
+        json.append("{\n");
+        json.append("  \"format\": ").append(FORMAT_VERSION).append(",\n");
+        json.append("  \"launchedAt\": ").append(launchedAtMillis).append(",\n");
+        json.append("  \"versionName\": ").append(quote(BuildConfig.VERSION_NAME)).append(",\n");
+        json.append("  \"versionCode\": ").append(BuildConfig.VERSION_CODE).append(",\n");
+        json.append("  \"buildType\": ").append(quote(BuildConfig.BUILD_TYPE)).append(",\n");
+        json.append("  \"device\": ").append(quote(Build.MODEL)).append(",\n");
+        json.append("  \"sdk\": ").append(Build.VERSION.SDK_INT).append(",\n");
+        json.append("  \"clock\": \"elapsedRealtime since process start\",\n");
+        json.append("  \"phases\": [");
+        for (int i = 0; i < sorted.size(); i++) {
+            Phase phase = sorted.get(i);
+            json.append(i == 0 ? "\n" : ",\n");
+            json.append("    {\"name\": ").append(quote(phase.name))
+                    .append(", \"startMs\": ").append(millis(phase.startNanos - originNanos));
+            if (phase.section && phase.endNanos >= 0) {
+                json.append(", \"durationMs\": ").append(millis(phase.endNanos - phase.startNanos));
+            }
+            json.append(", \"thread\": ").append(quote(phase.thread)).append('}');
+        }
+        json.append("\n  ]\n}\n");
+        return json.toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.US, "%.2f", nanos / 1_000_000.0);
+    }
+
+    private static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format(Locale.US, "\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    private static boolean write(File file, byte[] bytes) {
+        File temp = new File(file.getPath() + ".tmp");
+        try (OutputStream out = new FileOutputStream(temp)) {
+            out.write(bytes);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to write launch timeline", e);
+            temp.delete();
+            return false;
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            Log.e(TAG, "Could not replace " + file);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Keeps the newest timelines only.
+     */
+    private static void prune(File dir) {
+        File[] files = dir.listFiles((d, name) -> name.startsWith("launch-") && name.endsWith(".json"));
+        if (files == null || files.length <= MAX_TRACES) {
+            return;
+        }
+        // Same-length names of launch times sort oldest first
+        Arrays.sort(files, (a, b) -> a.getName().compareTo(b.getName()));
+        for (int i = 0; i < files.length - MAX_TRACES; i++) {
+            if (!files[i].delete()) {
+                Log.w(TAG, "Could not delete " + files[i]);
+            }
+        }
+    }
+}
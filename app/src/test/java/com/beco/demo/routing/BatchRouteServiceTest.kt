@@ -0,0 +1,227 @@
+package com.beco.demo.routing
+
+import com.becomap.sdk.models.BCLocation
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Assert.fail
+import org.junit.Test
+
+/**
+ * Runs [BatchRouteService] against a stand-in provider that places locations on a line, so the
+ * distance between two locations is the difference of their positions.
+ */
+class BatchRouteServiceTest {
+
+    private class StandInProvider(private val immediate: Boolean) : RouteMetricsProvider {
+        val pending = ArrayDeque<Pair<String, RouteMetricsProvider.Callback>>()
+        var requests = 0
+        var maxOutstanding = 0
+        /** Whether results hold for the reverse direction, i.e. no one-way connectors. */
+        var reversible = true
+
+        override fun requestMetrics(
+            source: BCLocation,
+            destination: BCLocation,
+            callback: RouteMetricsProvider.Callback
+        ) {
+            requests++
+            val distance = Math.abs(position(source) - position(destination))
+            if (immediate) {
+                callback.onMetrics(RouteMetrics(distance, distance, reversible))
+            } else {
+                pending.addLast("${source.id}>${destination.id}" to callback)
+                maxOutstanding = maxOf(maxOutstanding, pending.size)
+            }
+        }
+
+        /** Completes the oldest outstanding request. */
+        fun completeNext() {
+            val (pair, callback) = pending.removeFirst()
+            val (from, to) = pair.split(">")
+            val distance = Math.abs(from.toDouble() - to.toDouble())
+            callback.onMetrics(RouteMetrics(distance, distance, reversible))
+        }
+
+        fun completeAll() {
+            while (pending.isNotEmpty()) {
+                completeNext()
+            }
+        }
+
+        private fun position(location: BCLocation) = location.id!!.toDouble()
+    }
+
+    private fun locations(vararg positions: Int) = positions.map { position ->
+        BCLocation().apply {
+            id = position.toString()
+            name = "Stop $position"
+        }
+    }
+
+    @Test
+    fun symmetricPairsAreRequestedOnce() {
+        val provider = StandInProvider(immediate = true)
+        val service = BatchRouteService(provider)
+        val nodes = locations(0, 10, 25, 40)
+        var result: RouteMatrix? = null
+
+        service.submit(nodes, nodes) { result = it }
+
+        val matrix = result
+        assertNotNull(matrix)
+        // 4 nodes: 12 off-diagonal cells, 6 distinct unordered pairs
+        assertEquals(6, provider.requests)
+        for (r in nodes.indices) {
+            assertEquals(0.0, matrix!!.getDistance(r, r), 0.0)
+            for (c in nodes.indices) {
+                assertEquals(matrix.getDistance(r, c), matrix.getDistance(c, r), 0.0)
+            }
+        }
+        assertEquals(30.0, matrix!!.getDistance(1, 3), 0.0)
+    }
+
+    @Test
+    fun asymmetricServiceRequestsBothDirections() {
+        val provider = StandInProvider(immediate = true)
+        val service = BatchRouteService(provider, 2, 8, false)
+        val nodes = locations(0, 10, 25)
+
+        service.submit(nodes, nodes) { }
+
+        assertEquals(6, provider.requests)
+    }
+
+    @Test
+    fun irreversiblePairsAreRequestedInBothDirections() {
+        val provider = StandInProvider(immediate = false)
+        provider.reversible = false
+        val service = BatchRouteService(provider, 2, 8, true)
+        val nodes = locations(0, 10, 25)
+        var result: RouteMatrix? = null
+
+        service.submit(nodes, nodes) { result = it }
+        provider.completeAll()
+
+        // The first direction of each pair cannot stand in for the other one
+        assertEquals(6, provider.requests)
+        assertNotNull(result)
+        assertEquals(15.0, result!!.getDistance(2, 1), 0.0)
+        assertEquals(15.0, result!!.getDistance(1, 2), 0.0)
+    }
+
+    @Test
+    fun singlePairsShareTheMatrixCache() {
+        val provider = StandInProvider(immediate = true)
+        val service = BatchRouteService(provider)
+        service.submit(locations(0, 10, 25), locations(0, 10, 25)) { }
+        val afterMatrix = provider.requests
+        var metrics: RouteMetrics? = null
+
+        service.requestMetrics(locations(25)[0], locations(0)[0], object : RouteMetricsProvider.Callback {
+            override fun onMetrics(result: RouteMetrics) {
+                metrics = result
+            }
+
+            override fun onFailed() {
+                fail("Pair should have been answered from the cache")
+            }
+        })
+
+        assertEquals(afterMatrix, provider.requests)
+        assertEquals(25.0, metrics!!.distanceMeters, 0.0)
+    }
+
+    @Test
+    fun cachedPairsAreNotRequestedAgain() {
+        val provider = StandInProvider(immediate = true)
+        val service = BatchRouteService(provider)
+        val nodes = locations(0, 10, 25)
+        service.submit(nodes, nodes) { }
+        val afterFirst = provider.requests
+
+        var result: RouteMatrix? = null
+        service.submit(locations(25, 0), locations(10)) { result = it }
+
+        assertEquals(afterFirst, provider.requests)
+        assertEquals(15.0, result!!.getDistance(0, 0), 0.0)
+        assertEquals(10.0, result!!.getDistance(1, 0), 0.0)
+
+        service.invalidate()
+        service.submit(locations(25, 0), locations(10)) { }
+        assertEquals(afterFirst + 2, provider.requests)
+    }
+
+    @Test
+    fun concurrencyStaysWithinLimit() {
+        val provider = StandInProvider(immediate = false)
+        val service = BatchRouteService(provider, 3, 8, true)
+        val nodes = locations(0, 1, 2, 3, 4, 5, 6)
+        var result: RouteMatrix? = null
+
+        service.submit(nodes, nodes) { result = it }
+        assertEquals(3, provider.pending.size)
+        assertNull(result)
+
+        provider.completeAll()
+
+        assertEquals(3, provider.maxOutstanding)
+        assertEquals(21, provider.requests)
+        assertNotNull(result)
+        assertTrue(result!!.isReachable(0, 6))
+        assertEquals(6.0, result!!.getDistance(6, 0), 0.0)
+    }
+
+    @Test
+    fun overlappingBatchesShareInFlightPairs() {
+        val provider = StandInProvider(immediate = false)
+        val service = BatchRouteService(provider, 4, 8, true)
+        var first: RouteMatrix? = null
+        var second: RouteMatrix? = null
+
+        service.submit(locations(0, 10), locations(20)) { first = it }
+        service.submit(locations(20), locations(0, 10)) { second = it }
+        provider.completeAll()
+
+        assertEquals(2, provider.requests)
+        assertEquals(2, service.sharedCount)
+        assertEquals(20.0, first!!.getDistance(0, 0), 0.0)
+        assertEquals(10.0, second!!.getDistance(0, 1), 0.0)
+    }
+
+    @Test
+    fun cancelledBatchIsNotDelivered() {
+        val provider = StandInProvider(immediate = false)
+        val service = BatchRouteService(provider, 1, 8, true)
+        val nodes = locations(0, 10, 25)
+        var delivered = false
+
+        val batch = service.submit(nodes, nodes) { delivered = true }
+        batch.cancel()
+        provider.completeAll()
+
+        assertTrue(batch.isCancelled)
+        assertFalse(delivered)
+        assertEquals(1, provider.requests)
+    }
+
+    @Test
+    fun saturatedServiceRejectsBatches() {
+        val provider = StandInProvider(immediate = false)
+        val service = BatchRouteService(provider, 1, 2, true)
+
+        service.submit(locations(0), locations(1)) { }
+        service.submit(locations(0), locations(2)) { }
+        assertFalse(service.hasCapacity())
+        try {
+            service.submit(locations(0), locations(3)) { }
+            fail("Expected the saturated service to refuse the batch")
+        } catch (expected: IllegalStateException) {
+        }
+
+        provider.completeAll()
+        assertTrue(service.hasCapacity())
+    }
+}
@@ -0,0 +1,137 @@
+package com.beco.demo.routing
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+/**
+ * Walks synthetic routes with [SimulatedPositionStream] and feeds the fixes through
+ * [RouteProgressTracker], the same way real fixes would be.
+ */
+class NavigationSimulationTest {
+
+    /**
+     * A route zig-zagging over [floors] floors: [legsPerFloor] diagonal legs per floor, each
+     * [legMeters] north and east, with an elevator back to the start between consecutive floors.
+     */
+    private fun zigZagPath(floors: Int, legsPerFloor: Int, legMeters: Double): RoutePath {
+        val degreesPerMeter = Math.toDegrees(1.0 / 6371008.8)
+        val floorIds = ArrayList<String>()
+        val latitudes = ArrayList<Double>()
+        val longitudes = ArrayList<Double>()
+        for (floor in 0 until floors) {
+            for (leg in 0..legsPerFloor) {
+                floorIds.add("L$floor")
+                latitudes.add(leg * legMeters * degreesPerMeter)
+                longitudes.add(if (leg % 2 == 0) 0.0 else legMeters * degreesPerMeter)
+            }
+        }
+        return RoutePath(
+            floorIds.toTypedArray(),
+            latitudes.toDoubleArray(),
+            longitudes.toDoubleArray(),
+            IntArray(floorIds.size) { it }
+        )
+    }
+
+    private fun tracker(path: RoutePath): RouteProgressTracker =
+        RouteProgressTracker().apply { setPath(null, path, Double.NaN, path.length / 1.4) }
+
+    @Test
+    fun exactWalkCountsDownToTheDestination() {
+        val path = zigZagPath(floors = 3, legsPerFloor = 4, legMeters = 10.0)
+        val tracker = tracker(path)
+        val stream = SimulatedPositionStream(path, 1.0, 0.0, 1.0, 1L)
+
+        var fixes = 0
+        var previousRemaining = Double.MAX_VALUE
+        var last: RouteProgress? = null
+        while (stream.hasNext()) {
+            val fix = stream.next()
+            val progress = tracker.onPositionFix(fix.floorId, fix.latitude, fix.longitude)
+            assertNotNull("Fix $fix was not matched", progress)
+            assertTrue(progress!!.remainingMeters <= previousRemaining + 1e-6)
+            assertEquals(0.0, progress.offsetMeters, 1e-3)
+            previousRemaining = progress.remainingMeters
+            last = progress
+            fixes++
+        }
+
+        // At 1 m/s and 1 Hz: one fix per started metre, plus the one at the destination
+        assertEquals(Math.ceil(path.length).toInt() + 1, fixes)
+        assertEquals(1.0, last!!.fraction, 1e-6)
+        assertEquals(0.0, last.remainingMeters, 1e-3)
+        assertEquals("L2", last.floorId)
+    }
+
+    @Test
+    fun sameSeedReplaysTheSameWalk() {
+        val path = zigZagPath(floors = 2, legsPerFloor = 3, legMeters = 15.0)
+        val first = SimulatedPositionStream(path, 1.4, 2.0, 4.0, 7L)
+        val second = SimulatedPositionStream(path, 1.4, 2.0, 4.0, 7L)
+        assertEquals(250L, first.intervalMillis)
+        while (first.hasNext()) {
+            val a = first.next()
+            val b = second.next()
+            assertEquals(a.timeMillis, b.timeMillis)
+            assertEquals(a.latitude, b.latitude, 0.0)
+            assertEquals(a.longitude, b.longitude, 0.0)
+        }
+        assertTrue(!second.hasNext())
+    }
+
+    @Test
+    fun noisyWalkStaysOnTheRouteAndReachesTheEnd() {
+        val path = zigZagPath(floors = 4, legsPerFloor = 20, legMeters = 8.0)
+        val tracker = tracker(path)
+        val stream = SimulatedPositionStream(path, 1.4, 1.5, 5.0, 42L)
+
+        var last: RouteProgress? = null
+        while (stream.hasNext()) {
+            val fix = stream.next()
+            last = tracker.onPositionFix(fix.floorId, fix.latitude, fix.longitude) ?: last
+        }
+        assertNotNull(last)
+        // Noise of 1.5 m may leave the last fix a few metres short of the end
+        assertTrue("Remaining ${last!!.remainingMeters} m", last.remainingMeters < 8.0)
+        assertEquals("L3", last.floorId)
+    }
+
+    private class Walk(val fixes: Int, val last: RouteProgress?, val nanos: Long)
+
+    private fun walk(path: RoutePath): Walk {
+        val tracker = tracker(path)
+        val stream = SimulatedPositionStream(path, 1.4, 1.5, 20.0, 3L)
+        var fixes = 0
+        var last: RouteProgress? = null
+        val start = System.nanoTime()
+        while (stream.hasNext()) {
+            val fix = stream.next()
+            last = tracker.onPositionFix(fix.floorId, fix.latitude, fix.longitude) ?: last
+            fixes++
+        }
+        return Walk(fixes, last, System.nanoTime() - start)
+    }
+
+    /**
+     * A route with thousands of vertices over ten floors is followed all the way to its last floor,
+     * fast enough to show fixes are matched around the expected position and not by a scan.
+     *
+     * Measured on one core: about 1.7M fixes/s, and about 200k fixes/s when every fix is looked up
+     * on its whole floor. The bound sits between the two.
+     */
+    @Test
+    fun longNoisyWalkIsTrackedToTheLastFloor() {
+        val path = zigZagPath(floors = 10, legsPerFloor = 500, legMeters = 5.0)
+        walk(path) // Warm-up, so the measured walk runs compiled code
+
+        val walk = walk(path)
+        val perSecond = walk.fixes / (walk.nanos / 1e9)
+
+        assertTrue(walk.fixes > 100_000)
+        assertNotNull(walk.last)
+        assertEquals("L9", walk.last!!.floorId)
+        assertTrue("Only ${perSecond.toLong()} fixes/s", perSecond > 500_000)
+    }
+}